@@ -33,6 +33,8 @@ android {
 
 dependencies {
 
+    // Game rules and AI, a plain Java module that also runs the JMH benchmarks
+    implementation(project(":engine"))
     implementation(libs.appcompat)
     implementation(libs.material)
     testImplementation(libs.junit)
@@ -0,0 +1,339 @@
+package com.example.androidtictactoe_tutorial2;
+
+import android.media.AudioAttributes;
+import android.media.AudioFormat;
+import android.media.AudioTrack;
+import android.os.Build;
+import android.os.Process;
+import android.util.Log;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Software mixer for the game's sound effects: one audio thread sums the playing voices
+ * into a single low-latency streaming AudioTrack.
+ *
+ * Clips are 16-bit mono PCM at {@link #SAMPLE_RATE}, registered by the loader that runs first on
+ * the audio thread. {@link #play} only writes into a preallocated command ring buffer, so callers
+ * never wait for audio, allocate or create threads. When every voice is busy the lowest-priority
+ * voice (the one closest to its end among equals) is stolen, unless it outranks the new sound.
+ */
+class AudioMixer {
+    static final int SAMPLE_RATE = 44100;
+    private static final String TAG = "AudioMixer";
+
+    // Pending play commands; a power of two so the indices wrap with a mask
+    private static final int COMMAND_CAPACITY = 16;
+    private static final int STOP_ALL = -1;
+
+    private final short[][] mClips;
+
+    // Command ring buffer, filled by play() and drained by the audio thread, both under mLock
+    private final Object mLock = new Object();
+    private final int[] mCommandClip = new int[COMMAND_CAPACITY];
+    private final int[] mCommandGain = new int[COMMAND_CAPACITY];
+    private final int[] mCommandPriority = new int[COMMAND_CAPACITY];
+    private final long[] mCommandTime = new long[COMMAND_CAPACITY];
+    private int mCommandHead;
+    private int mCommandTail;
+
+    // Voices, only touched by the audio thread. Gains are Q15 fixed point.
+    private final short[][] mVoiceClip;
+    private final int[] mVoicePosition;
+    private final int[] mVoiceGain;
+    private final int[] mVoicePriority;
+    private int mActiveVoices;
+
+    // Mix buffers of one burst, allocated once the burst size is known
+    private int mBurstFrames;
+    private int[] mAccumulator;
+    private short[] mMixBuffer;
+
+    private Thread mThread;
+    private volatile boolean mRunning;
+
+    // Metrics, written by the audio thread
+    private volatile int mBufferFrames;
+    private volatile int mUnderruns;
+    private volatile int mStolenVoices;
+    private volatile int mDroppedSounds;
+    private volatile float mLastStartLatencyMs;
+    private volatile float mMaxStartLatencyMs;
+
+    AudioMixer(int clipCount, int maxVoices) {
+        mClips = new short[clipCount][];
+        mVoiceClip = new short[maxVoices][];
+        mVoicePosition = new int[maxVoices];
+        mVoiceGain = new int[maxVoices];
+        mVoicePriority = new int[maxVoices];
+    }
+
+    /**
+     * Starts the audio thread, which runs {@code loader} (calling {@link #setClip}) before mixing
+     *
+     * @param framesPerBurst frames the device mixes at a time; the mixer writes in bursts of this size
+     */
+    void start(int framesPerBurst, Runnable loader) {
+        mBurstFrames = Math.max(64, framesPerBurst);
+        mAccumulator = new int[mBurstFrames];
+        mMixBuffer = new short[mBurstFrames];
+        mRunning = true;
+        mThread = new Thread(() -> run(loader), "audio-mixer");
+        mThread.start();
+    }
+
+    /**
+     * Registers a clip; only to be called from the loader passed to {@link #start}
+     */
+    void setClip(int clip, short[] pcm) {
+        mClips[clip] = pcm;
+    }
+
+    /**
+     * Queues a clip to play at {@code volume} (0-1). Higher priorities may steal lower ones' voices.
+     */
+    void play(int clip, float volume, int priority) {
+        enqueue(clip, (int) (Math.max(0, Math.min(1, volume)) * 32767), priority);
+    }
+
+    void stopAll() {
+        enqueue(STOP_ALL, 0, Integer.MAX_VALUE);
+    }
+
+    void release() {
+        synchronized (mLock) {
+            mRunning = false;
+            mLock.notifyAll();
+        }
+    }
+
+    private void enqueue(int clip, int gain, int priority) {
+        synchronized (mLock) {
+            if (mCommandTail - mCommandHead == COMMAND_CAPACITY) {
+                mDroppedSounds++;
+                return;
+            }
+            int index = mCommandTail & (COMMAND_CAPACITY - 1);
+            mCommandClip[index] = clip;
+            mCommandGain[index] = gain;
+            mCommandPriority[index] = priority;
+            mCommandTime[index] = System.nanoTime();
+            mCommandTail++;
+            mLock.notifyAll();
+        }
+    }
+
+    private void run(Runnable loader) {
+        Process.setThreadPriority(Process.THREAD_PRIORITY_URGENT_AUDIO);
+        loader.run();
+
+        AudioTrack track = createTrack();
+        // Start at two bursts, the least that survives scheduling jitter, and grow on underruns
+        track.setBufferSizeInFrames(2 * mBurstFrames);
+        mBufferFrames = track.getBufferSizeInFrames();
+        boolean playing = false;
+        try {
+            while (mRunning) {
+                if (!drainCommands() && mActiveVoices == 0) {
+                    if (playing) {
+                        // stop() lets the last burst play out
+                        track.stop();
+                        playing = false;
+                    }
+                    synchronized (mLock) {
+                        while (mRunning && mCommandHead == mCommandTail) {
+                            mLock.wait();
+                        }
+                    }
+                    continue;
+                }
+                if (!playing) {
+                    track.play();
+                    playing = true;
+                }
+                mix();
+                track.write(mMixBuffer, 0, mBurstFrames);
+                checkUnderruns(track);
+            }
+        } catch (InterruptedException e) {
+            // Nothing left to play
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Audio mixing failed", e);
+        } finally {
+            track.release();
+        }
+    }
+
+    private AudioTrack createTrack() {
+        int minBufferBytes = AudioTrack.getMinBufferSize(SAMPLE_RATE,
+                AudioFormat.CHANNEL_OUT_MONO, AudioFormat.ENCODING_PCM_16BIT);
+        AudioTrack.Builder builder = new AudioTrack.Builder()
+                .setAudioAttributes(new AudioAttributes.Builder()
+                        .setUsage(AudioAttributes.USAGE_GAME)
+                        .setContentType(AudioAttributes.CONTENT_TYPE_SONIFICATION)
+                        .build())
+                .setAudioFormat(new AudioFormat.Builder()
+                        .setSampleRate(SAMPLE_RATE)
+                        .setChannelMask(AudioFormat.CHANNEL_OUT_MONO)
+                        .setEncoding(AudioFormat.ENCODING_PCM_16BIT)
+                        .build())
+                // Capacity to grow into; the buffer actually used is set with setBufferSizeInFrames
+                .setBufferSizeInBytes(Math.max(minBufferBytes, 8 * 2 * mBurstFrames))
+                .setTransferMode(AudioTrack.MODE_STREAM);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            builder.setPerformanceMode(AudioTrack.PERFORMANCE_MODE_LOW_LATENCY);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Adds one burst to the buffer each time the track ran dry, up to its capacity
+     */
+    private void checkUnderruns(AudioTrack track) {
+        int underruns = track.getUnderrunCount();
+        if (underruns > mUnderruns) {
+            mUnderruns = underruns;
+            int frames = track.getBufferSizeInFrames();
+            if (frames + mBurstFrames <= track.getBufferCapacityInFrames()) {
+                mBufferFrames = track.setBufferSizeInFrames(frames + mBurstFrames);
+            }
+        }
+    }
+
+    /**
+     * Starts the queued sounds; returns whether there were any
+     */
+    private boolean drainCommands() {
+        synchronized (mLock) {
+            if (mCommandHead == mCommandTail) {
+                return false;
+            }
+            long now = System.nanoTime();
+            while (mCommandHead != mCommandTail) {
+                int index = mCommandHead & (COMMAND_CAPACITY - 1);
+                mCommandHead++;
+                if (startVoice(mCommandClip[index], mCommandGain[index], mCommandPriority[index])) {
+                    // Queued time plus what is already buffered ahead of the new voice
+                    float latency = (now - mCommandTime[index]) / 1e6f + mBufferFrames * 1000f / SAMPLE_RATE;
+                    mLastStartLatencyMs = latency;
+                    mMaxStartLatencyMs = Math.max(mMaxStartLatencyMs, latency);
+                }
+            }
+            return true;
+        }
+    }
+
+    private boolean startVoice(int clip, int gain, int priority) {
+        if (clip == STOP_ALL) {
+            Arrays.fill(mVoiceClip, null);
+            mActiveVoices = 0;
+            return false;
+        }
+        short[] pcm = clip >= 0 && clip < mClips.length ? mClips[clip] : null;
+        if (pcm == null || pcm.length == 0) {
+            return false;
+        }
+
+        int slot = -1;
+        for (int voice = 0; voice < mVoiceClip.length && slot < 0; voice++) {
+            if (mVoiceClip[voice] == null) {
+                slot = voice;
+            }
+        }
+        if (slot < 0) {
+            slot = pickVoiceToSteal();
+            if (mVoicePriority[slot] > priority) {
+                mDroppedSounds++;
+                return false;
+            }
+            mStolenVoices++;
+        } else {
+            mActiveVoices++;
+        }
+        mVoiceClip[slot] = pcm;
+        mVoicePosition[slot] = 0;
+        mVoiceGain[slot] = gain;
+        mVoicePriority[slot] = priority;
+        return true;
+    }
+
+    private int pickVoiceToSteal() {
+        int victim = 0;
+        for (int voice = 1; voice < mVoiceClip.length; voice++) {
+            if (mVoicePriority[voice] < mVoicePriority[victim]
+                    || (mVoicePriority[voice] == mVoicePriority[victim] && remaining(voice) < remaining(victim))) {
+                victim = voice;
+            }
+        }
+        return victim;
+    }
+
+    private int remaining(int voice) {
+        return mVoiceClip[voice].length - mVoicePosition[voice];
+    }
+
+    /**
+     * Sums one burst of every active voice into mMixBuffer, clipping to 16 bits
+     */
+    private void mix() {
+        int frames = mBurstFrames;
+        int[] accumulator = mAccumulator;
+        Arrays.fill(accumulator, 0);
+        for (int voice = 0; voice < mVoiceClip.length; voice++) {
+            short[] pcm = mVoiceClip[voice];
+            if (pcm == null) {
+                continue;
+            }
+            int position = mVoicePosition[voice];
+            int gain = mVoiceGain[voice];
+            int count = Math.min(frames, pcm.length - position);
+            for (int i = 0; i < count; i++) {
+                accumulator[i] += (pcm[position + i] * gain) >> 15;
+            }
+            position += count;
+            if (position >= pcm.length) {
+                mVoiceClip[voice] = null;
+                mActiveVoices--;
+            } else {
+                mVoicePosition[voice] = position;
+            }
+        }
+        for (int i = 0; i < frames; i++) {
+            mMixBuffer[i] = (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, accumulator[i]));
+        }
+    }
+
+    /**
+     * Audio buffered between the mixer and the speaker, in milliseconds
+     */
+    float getOutputLatencyMs() {
+        return mBufferFrames * 1000f / SAMPLE_RATE;
+    }
+
+    int getUnderrunCount() {
+        return mUnderruns;
+    }
+
+    int getStolenVoiceCount() {
+        return mStolenVoices;
+    }
+
+    int getDroppedSoundCount() {
+        return mDroppedSounds;
+    }
+
+    /**
+     * Time from play() until the sound's first sample leaves the buffer, for the last sound started
+     */
+    float getLastStartLatencyMs() {
+        return mLastStartLatencyMs;
+    }
+
+    String getStatsSummary() {
+        return String.format(Locale.US,
+                "buffer %.1f ms (%d frames, burst %d), start latency %.1f ms (max %.1f), %d underruns, %d stolen, %d dropped",
+                getOutputLatencyMs(), mBufferFrames, mBurstFrames, mLastStartLatencyMs, mMaxStartLatencyMs,
+                mUnderruns, mStolenVoices, mDroppedSounds);
+    }
+}
@@ -1,25 +1,98 @@
 package com.example.androidtictactoe_tutorial2;
 
 import android.content.Context;
+import android.content.res.Configuration;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
+import android.graphics.Rect;
 import android.graphics.drawable.Drawable;
 import android.util.AttributeSet;
+import android.view.Choreographer;
+import android.view.Display;
+import android.view.GestureDetector;
 import android.view.MotionEvent;
+import android.view.ScaleGestureDetector;
 import android.view.View;
 import androidx.core.content.ContextCompat;
 
-public class BoardView extends View {
+import com.example.androidtictactoe_tutorial2.game.GameBoard;
+import com.example.androidtictactoe_tutorial2.game.MoveHistory;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+public class BoardView extends View implements Choreographer.FrameCallback {
     // Width of the board grid lines
     public static final int GRID_WIDTH = 6;
     
+    // Animation lengths
+    private static final long PLACE_DURATION_NANOS = 150_000_000L;
+    private static final long WIN_LINE_DURATION_NANOS = 300_000_000L;
+    
+    // Zooming in stops once a cell is this big on screen
+    private static final int MAX_ZOOMED_CELL_DP = 96;
+    
     private Drawable mHumanDrawable;
     private Drawable mComputerDrawable;
     private Paint mPaint;
+    private Paint mWinPaint;
+    private Paint mGridPaint;
+    private Paint mSpritePaint;
     
     // Game board state
-    private String[][] mBoard = new String[3][3];
+    private GameBoard mBoard = new GameBoard(3, 3);
+    
+    // Grid lines, drawn once per view or board size into an alpha-only bitmap tinted by mPaint
+    private Bitmap mGridBitmap;
+    
+    // X and O rasterized side by side at their on-screen size, so a symbol is one bitmap copy
+    private Bitmap mSymbolAtlas;
+    private final Rect mAtlasX = new Rect();
+    private final Rect mAtlasO = new Rect();
+    private final Rect mSymbolBounds = new Rect();
+    
+    // Cell layout, recomputed only when the view or the board changes size
+    private int mCellWidth;
+    private int mCellHeight;
+    private int[] mSymbolLeft = new int[0];
+    private int[] mSymbolTop = new int[0];
+    private int mSymbolWidth;
+    private int mSymbolHeight;
+    private final Rect mClipBounds = new Rect();
+    private int mFirstRow;
+    private int mLastRow;
+    private int mFirstCol;
+    private int mLastCol;
+    
+    // Occupied cells by 8x8 tile, so drawing costs the visible symbols rather than the visible cells
+    private final OccupancyIndex mOccupied = new OccupancyIndex();
+    
+    // Viewport: screen = board * mScale + offset. At scale 1 the whole board fits the view.
+    private float mScale = 1;
+    private float mMaxScale = 1;
+    private float mOffsetX;
+    private float mOffsetY;
+    private ScaleGestureDetector mScaleDetector;
+    private GestureDetector mGestureDetector;
+    
+    // Animation state, in primitives so running a frame allocates nothing.
+    // Times are System.nanoTime(); a cell placed at 0 is drawn at full size.
+    private Choreographer mChoreographer;
+    private long[] mPlacedAtNanos = new long[9];
+    private long mWinLineStartNanos;
+    private long mAnimationEndNanos;
+    private long mFrameTimeNanos;
+    private boolean mFrameCallbackPosted;
+    private final Rect mAnimationBounds = new Rect();
+    
+    // Frame metrics for the debug API
+    private final FrameTimeHistogram mDrawTimes = new FrameTimeHistogram();
+    private long mFrameIntervalNanos = 1_000_000_000L / 60;
+    private long mLastFrameNanos;
+    private int mDroppedFrames;
+    private int mAnimatedFrames;
     
     // Click listener interface
     public interface OnCellClickListener {
@@ -44,147 +117,677 @@ public class BoardView extends View {
     }
     
     public void initialize() {
-        mHumanDrawable = ContextCompat.getDrawable(getContext(), R.drawable.x_img);
-        mComputerDrawable = ContextCompat.getDrawable(getContext(), R.drawable.o_img);
+        loadSymbolDrawables();
+        
+        mSpritePaint = new Paint(Paint.FILTER_BITMAP_FLAG);
         
         mPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        mPaint.setColor(Color.LTGRAY);
+        
+        mWinPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        mWinPaint.setColor(Color.RED);
+        mWinPaint.setStrokeCap(Paint.Cap.ROUND);
+        
+        // Grid for a zoomed board, drawn line by line instead of from the cached bitmap
+        mGridPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        mGridPaint.setColor(Color.LTGRAY);
+        
+        mChoreographer = Choreographer.getInstance();
+        
+        mScaleDetector = new ScaleGestureDetector(getContext(), new ScaleGestureDetector.SimpleOnScaleGestureListener() {
+            @Override
+            public boolean onScale(ScaleGestureDetector detector) {
+                zoomBy(detector.getScaleFactor(), detector.getFocusX(), detector.getFocusY());
+                return true;
+            }
+            
+            @Override
+            public void onScaleEnd(ScaleGestureDetector detector) {
+                // The atlas is stretched while pinching and rasterized again at the final zoom
+                recycleSymbolAtlas();
+                invalidate(); // Redraw the view
+            }
+        });
+        mGestureDetector = new GestureDetector(getContext(), new GestureDetector.SimpleOnGestureListener() {
+            @Override
+            public boolean onDown(MotionEvent e) {
+                return true;
+            }
+            
+            @Override
+            public boolean onScroll(MotionEvent e1, MotionEvent e2, float distanceX, float distanceY) {
+                if (mScale > 1 && !mScaleDetector.isInProgress()) {
+                    panBy(-distanceX, -distanceY);
+                }
+                return true;
+            }
+            
+            @Override
+            public boolean onSingleTapUp(MotionEvent e) {
+                onCellTapped(e.getX(), e.getY());
+                return true;
+            }
+        });
         
         // Initialize empty board
-        for (int i = 0; i < 3; i++) {
-            for (int j = 0; j < 3; j++) {
-                mBoard[i][j] = "";
+        mBoard.clear();
+        mOccupied.reset(mBoard.size());
+    }
+    
+    private void loadSymbolDrawables() {
+        mHumanDrawable = ContextCompat.getDrawable(getContext(), R.drawable.x_img);
+        mComputerDrawable = ContextCompat.getDrawable(getContext(), R.drawable.o_img);
+    }
+    
+    @Override
+    protected void onConfigurationChanged(Configuration newConfig) {
+        super.onConfigurationChanged(newConfig);
+        // A theme change (e.g. night mode) can change the symbols' colors
+        loadSymbolDrawables();
+        recycleSymbolAtlas();
+        invalidate(); // Redraw the view
+    }
+    
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        updateLayout();
+    }
+    
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        // Dropped frames are counted against the real refresh rate (60, 90, 120 Hz...)
+        Display display = getDisplay();
+        if (display != null && display.getRefreshRate() > 0) {
+            mFrameIntervalNanos = (long) (1_000_000_000L / display.getRefreshRate());
+        }
+    }
+    
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        stopAnimations();
+        if (mGridBitmap != null) {
+            mGridBitmap.recycle();
+            mGridBitmap = null;
+        }
+        recycleSymbolAtlas();
+    }
+    
+    /**
+     * Recomputes cell and symbol bounds and redraws the cached grid
+     */
+    private void updateLayout() {
+        int size = mBoard.size();
+        mCellWidth = getWidth() / size;
+        mCellHeight = getHeight() / size;
+        
+        // Symbols take the middle half of their cell
+        mSymbolWidth = mCellWidth / 2;
+        mSymbolHeight = mCellHeight / 2;
+        mWinPaint.setStrokeWidth(Math.max(2, Math.min(mCellWidth, mCellHeight) / 10));
+        
+        // Only boards whose cells are smaller than the zoom limit can be zoomed
+        float maxCell = MAX_ZOOMED_CELL_DP * getResources().getDisplayMetrics().density;
+        int minCell = Math.min(mCellWidth, mCellHeight);
+        mMaxScale = minCell > 0 ? Math.max(1, maxCell / minCell) : 1;
+        setViewport(1, 0, 0);
+        if (mSymbolLeft.length != size) {
+            mSymbolLeft = new int[size];
+            mSymbolTop = new int[size];
+        }
+        for (int i = 0; i < size; i++) {
+            mSymbolLeft[i] = i * mCellWidth + mCellWidth / 4;
+            mSymbolTop[i] = i * mCellHeight + mCellHeight / 4;
+        }
+        
+        recycleSymbolAtlas();
+        drawGrid();
+        invalidate(); // Redraw the view
+    }
+    
+    private void drawGrid() {
+        int boardWidth = getWidth();
+        int boardHeight = getHeight();
+        if (boardWidth == 0 || boardHeight == 0) {
+            return;
+        }
+        if (mGridBitmap == null || mGridBitmap.getWidth() != boardWidth || mGridBitmap.getHeight() != boardHeight) {
+            if (mGridBitmap != null) {
+                mGridBitmap.recycle();
             }
+            mGridBitmap = Bitmap.createBitmap(boardWidth, boardHeight, Bitmap.Config.ALPHA_8);
+        } else {
+            mGridBitmap.eraseColor(Color.TRANSPARENT);
+        }
+        
+        // Thinner lines on bigger boards
+        Paint linePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        linePaint.setStrokeWidth(Math.max(1, Math.min(GRID_WIDTH, mCellWidth / 8)));
+        
+        // Draw the inner vertical and horizontal lines
+        Canvas gridCanvas = new Canvas(mGridBitmap);
+        int size = mBoard.size();
+        for (int i = 1; i < size; i++) {
+            gridCanvas.drawLine(mCellWidth * i, 0, mCellWidth * i, boardHeight, linePaint);
+            gridCanvas.drawLine(0, mCellHeight * i, boardWidth, mCellHeight * i, linePaint);
+        }
+    }
+    
+    private void recycleSymbolAtlas() {
+        if (mSymbolAtlas != null) {
+            mSymbolAtlas.recycle();
+            mSymbolAtlas = null;
+        }
+    }
+    
+    /**
+     * Rasterizes the X and O drawables once, at the size a symbol takes on screen at the current zoom
+     */
+    private void buildSymbolAtlas() {
+        int width = Math.round(mSymbolWidth * mScale);
+        int height = Math.round(mSymbolHeight * mScale);
+        if (width <= 0 || height <= 0) {
+            return;
+        }
+        mSymbolAtlas = Bitmap.createBitmap(2 * width, height, Bitmap.Config.ARGB_8888);
+        mAtlasX.set(0, 0, width, height);
+        mAtlasO.set(width, 0, 2 * width, height);
+        
+        Canvas atlasCanvas = new Canvas(mSymbolAtlas);
+        if (mHumanDrawable != null) {
+            mHumanDrawable.setBounds(mAtlasX);
+            mHumanDrawable.draw(atlasCanvas);
+        }
+        if (mComputerDrawable != null) {
+            mComputerDrawable.setBounds(mAtlasO);
+            mComputerDrawable.draw(atlasCanvas);
         }
     }
     
     @Override
     protected void onDraw(Canvas canvas) {
+        long drawStart = System.nanoTime();
         super.onDraw(canvas);
         
-        // Get the width and height of the board
-        int boardWidth = getWidth();
-        int boardHeight = getHeight();
+        // Zoomed in, everything below is drawn in board coordinates through the viewport
+        boolean zoomed = mScale > 1;
+        if (zoomed) {
+            canvas.save();
+            canvas.translate(mOffsetX, mOffsetY);
+            canvas.scale(mScale, mScale);
+            drawVisibleGrid(canvas);
+        } else {
+            if (mGridBitmap == null) {
+                drawGrid();
+            }
+            if (mGridBitmap != null) {
+                canvas.drawBitmap(mGridBitmap, 0, 0, mPaint);
+            }
+        }
         
-        // Set paint properties for drawing lines
-        mPaint.setColor(Color.LTGRAY);
-        mPaint.setStrokeWidth(GRID_WIDTH);
-        
-        // Draw two vertical lines
-        int cellWidth = boardWidth / 3;
-        canvas.drawLine(cellWidth, 0, cellWidth, boardHeight, mPaint);
-        canvas.drawLine(cellWidth * 2, 0, cellWidth * 2, boardHeight, mPaint);
-        
-        // Draw two horizontal lines
-        int cellHeight = boardHeight / 3;
-        canvas.drawLine(0, cellHeight, boardWidth, cellHeight, mPaint);
-        canvas.drawLine(0, cellHeight * 2, boardWidth, cellHeight * 2, mPaint);
-        
-        // Draw X's and O's
-        drawSymbols(canvas, cellWidth, cellHeight);
-    }
-    
-    private void drawSymbols(Canvas canvas, int cellWidth, int cellHeight) {
-        for (int i = 0; i < 3; i++) {
-            for (int j = 0; j < 3; j++) {
-                if (!mBoard[i][j].equals("")) {
-                    // Calculate the position and size for the symbol
-                    int left = j * cellWidth + cellWidth / 4;
-                    int top = i * cellHeight + cellHeight / 4;
-                    int right = left + cellWidth / 2;
-                    int bottom = top + cellHeight / 2;
-                    
-                    if (mBoard[i][j].equals("X") && mHumanDrawable != null) {
-                        mHumanDrawable.setBounds(left, top, right, bottom);
-                        mHumanDrawable.draw(canvas);
-                    } else if (mBoard[i][j].equals("O") && mComputerDrawable != null) {
-                        mComputerDrawable.setBounds(left, top, right, bottom);
-                        mComputerDrawable.draw(canvas);
+        if (mSymbolAtlas == null) {
+            buildSymbolAtlas();
+        }
+        
+        // Between frame callbacks everything is drawn as of the current frame; otherwise finished
+        long now = mFrameCallbackPosted ? mFrameTimeNanos : Long.MAX_VALUE;
+        
+        // Draw X's and O's, then strike through the winning line
+        drawSymbols(canvas, now);
+        drawWinLine(canvas, now);
+        
+        if (zoomed) {
+            canvas.restore();
+        }
+        mDrawTimes.record(System.nanoTime() - drawStart);
+    }
+    
+    /**
+     * Puts the cells inside the clip into mFirstRow..mLastCol; false if none are.
+     * When zoomed the clip is the viewport, so only the cells on screen are drawn. Otherwise it is
+     * the whole view: hardware-accelerated views (the default) ignore the dirty rectangle of
+     * invalidate(l, t, r, b) and redraw everything, and only software rendering clips to it.
+     */
+    private boolean computeVisibleCells(Canvas canvas) {
+        if (mCellWidth == 0 || mCellHeight == 0 || !canvas.getClipBounds(mClipBounds)) {
+            return false;
+        }
+        int size = mBoard.size();
+        mFirstRow = Math.max(0, mClipBounds.top / mCellHeight);
+        mLastRow = Math.min(size - 1, (mClipBounds.bottom - 1) / mCellHeight);
+        mFirstCol = Math.max(0, mClipBounds.left / mCellWidth);
+        mLastCol = Math.min(size - 1, (mClipBounds.right - 1) / mCellWidth);
+        return mFirstRow <= mLastRow && mFirstCol <= mLastCol;
+    }
+    
+    /**
+     * Draws just the grid segments crossing the visible cells
+     */
+    private void drawVisibleGrid(Canvas canvas) {
+        if (!computeVisibleCells(canvas)) {
+            return;
+        }
+        int size = mBoard.size();
+        float top = mFirstRow * mCellHeight;
+        float bottom = (mLastRow + 1) * mCellHeight;
+        float left = mFirstCol * mCellWidth;
+        float right = (mLastCol + 1) * mCellWidth;
+        for (int col = Math.max(1, mFirstCol); col <= Math.min(size - 1, mLastCol + 1); col++) {
+            canvas.drawLine(col * mCellWidth, top, col * mCellWidth, bottom, mGridPaint);
+        }
+        for (int row = Math.max(1, mFirstRow); row <= Math.min(size - 1, mLastRow + 1); row++) {
+            canvas.drawLine(left, row * mCellHeight, right, row * mCellHeight, mGridPaint);
+        }
+    }
+    
+    private void drawSymbols(Canvas canvas, long now) {
+        if (mSymbolAtlas == null || !computeVisibleCells(canvas)) {
+            return;
+        }
+        
+        // Walk the occupied bits of the visible tiles rather than every visible cell
+        int lastTileRow = mLastRow >> OccupancyIndex.TILE_SHIFT;
+        int lastTileCol = mLastCol >> OccupancyIndex.TILE_SHIFT;
+        for (int tileRow = mFirstRow >> OccupancyIndex.TILE_SHIFT; tileRow <= lastTileRow; tileRow++) {
+            for (int tileCol = mFirstCol >> OccupancyIndex.TILE_SHIFT; tileCol <= lastTileCol; tileCol++) {
+                long occupied = mOccupied.tile(tileRow, tileCol);
+                while (occupied != 0) {
+                    int bit = Long.numberOfTrailingZeros(occupied);
+                    occupied &= occupied - 1;
+                    int row = OccupancyIndex.rowOf(tileRow, bit);
+                    int col = OccupancyIndex.colOf(tileCol, bit);
+                    if (row >= mFirstRow && row <= mLastRow && col >= mFirstCol && col <= mLastCol) {
+                        drawSymbol(canvas, row, col, now);
                     }
                 }
             }
         }
     }
     
+    private void drawSymbol(Canvas canvas, int row, int col, long now) {
+        int cell = mBoard.cell(row, col);
+        int value = mBoard.get(cell);
+        int left = mSymbolLeft[col];
+        int top = mSymbolTop[row];
+        int right = left + mSymbolWidth;
+        int bottom = top + mSymbolHeight;
+        
+        // A freshly placed symbol grows from the center of its cell
+        float scale = progress(mPlacedAtNanos[cell], PLACE_DURATION_NANOS, now);
+        if (scale < 1) {
+            int insetX = (int) (mSymbolWidth * (1 - scale) / 2);
+            int insetY = (int) (mSymbolHeight * (1 - scale) / 2);
+            left += insetX;
+            top += insetY;
+            right -= insetX;
+            bottom -= insetY;
+        }
+        
+        mSymbolBounds.set(left, top, right, bottom);
+        if (value == GameBoard.X) {
+            canvas.drawBitmap(mSymbolAtlas, mAtlasX, mSymbolBounds, mSpritePaint);
+        } else if (value == GameBoard.O) {
+            canvas.drawBitmap(mSymbolAtlas, mAtlasO, mSymbolBounds, mSpritePaint);
+        }
+    }
+    
+    private void drawWinLine(Canvas canvas, long now) {
+        int start = mBoard.winStart();
+        int end = mBoard.winEnd();
+        if (start < 0 || mCellWidth == 0 || mCellHeight == 0) {
+            return;
+        }
+        int size = mBoard.size();
+        float startX = (start % size) * mCellWidth + mCellWidth / 2f;
+        float startY = (start / size) * mCellHeight + mCellHeight / 2f;
+        float endX = (end % size) * mCellWidth + mCellWidth / 2f;
+        float endY = (end / size) * mCellHeight + mCellHeight / 2f;
+        
+        // The line is drawn from its first cell towards the last one
+        float length = progress(mWinLineStartNanos, WIN_LINE_DURATION_NANOS, now);
+        canvas.drawLine(startX, startY, startX + (endX - startX) * length,
+                startY + (endY - startY) * length, mWinPaint);
+    }
+    
+    /**
+     * Eased animation progress, from 0 at {@code startNanos} to 1 after {@code durationNanos}
+     */
+    private static float progress(long startNanos, long durationNanos, long now) {
+        if (startNanos == 0 || now - startNanos >= durationNanos) {
+            return 1;
+        }
+        float t = Math.max(0, now - startNanos) / (float) durationNanos;
+        // Ease out: fast at first, settling at the end
+        return 1 - (1 - t) * (1 - t);
+    }
+    
+    /**
+     * Invalidates the rectangle of one cell. With hardware acceleration the whole view is still
+     * redrawn; the rectangle only narrows the redraw when the view is software rendered.
+     */
+    private void invalidateCell(int row, int col) {
+        int left = col * mCellWidth;
+        int top = row * mCellHeight;
+        invalidateBoardRect(left, top, left + mCellWidth, top + mCellHeight);
+    }
+    
+    /**
+     * Redraws a rectangle given in board coordinates, mapped through the viewport
+     */
+    private void invalidateBoardRect(int left, int top, int right, int bottom) {
+        if (mScale > 1) {
+            invalidate((int) Math.floor(mOffsetX + left * mScale), (int) Math.floor(mOffsetY + top * mScale),
+                    (int) Math.ceil(mOffsetX + right * mScale), (int) Math.ceil(mOffsetY + bottom * mScale));
+        } else {
+            invalidate(left, top, right, bottom);
+        }
+    }
+    
+    /**
+     * Zooms by {@code factor} around the screen point (focusX, focusY), within 1..mMaxScale
+     */
+    private void zoomBy(float factor, float focusX, float focusY) {
+        float scale = Math.max(1, Math.min(mMaxScale, mScale * factor));
+        // The board point under the focus stays under it
+        float ratio = scale / mScale;
+        setViewport(scale, focusX - (focusX - mOffsetX) * ratio, focusY - (focusY - mOffsetY) * ratio);
+    }
+    
+    private void panBy(float dx, float dy) {
+        setViewport(mScale, mOffsetX + dx, mOffsetY + dy);
+    }
+    
+    /**
+     * Applies a viewport, keeping the board covering the view (offsets between the overflow and 0)
+     */
+    private void setViewport(float scale, float offsetX, float offsetY) {
+        float overflowX = getWidth() - mBoard.size() * mCellWidth * scale;
+        float overflowY = getHeight() - mBoard.size() * mCellHeight * scale;
+        mOffsetX = Math.max(Math.min(0, overflowX), Math.min(0, offsetX));
+        mOffsetY = Math.max(Math.min(0, overflowY), Math.min(0, offsetY));
+        if (scale != mScale) {
+            mScale = scale;
+            // Grid lines keep their width on screen
+            mGridPaint.setStrokeWidth(Math.max(1, Math.min(GRID_WIDTH, mCellWidth * mScale / 8)) / mScale);
+        }
+        invalidate(); // Redraw the view
+    }
+    
+    /**
+     * Starts the placement animation of a cell, and the win line if that move won
+     */
+    private void animateCell(int row, int col, boolean hadWinner) {
+        long now = System.nanoTime();
+        mPlacedAtNanos[mBoard.cell(row, col)] = now;
+        int left = col * mCellWidth;
+        int top = row * mCellHeight;
+        mAnimationBounds.union(left, top, left + mCellWidth, top + mCellHeight);
+        long end = now + PLACE_DURATION_NANOS;
+        
+        if (!hadWinner && mBoard.winStart() >= 0) {
+            mWinLineStartNanos = now;
+            mAnimationBounds.set(0, 0, getWidth(), getHeight());
+            end = now + WIN_LINE_DURATION_NANOS;
+        }
+        mAnimationEndNanos = Math.max(mAnimationEndNanos, end);
+        
+        // Without a window there are no frames; the next draw shows the finished state
+        if (!mFrameCallbackPosted && isAttachedToWindow()) {
+            mFrameTimeNanos = now;
+            mFrameCallbackPosted = true;
+            mChoreographer.postFrameCallback(this);
+        }
+        invalidateCell(row, col);
+    }
+    
     @Override
-    public boolean onTouchEvent(MotionEvent event) {
-        if (event.getAction() == MotionEvent.ACTION_DOWN) {
-            int x = (int) event.getX();
-            int y = (int) event.getY();
-            
-            int cellWidth = getWidth() / 3;
-            int cellHeight = getHeight() / 3;
-            
-            int row = y / cellHeight;
-            int col = x / cellWidth;
-            
-            // Make sure we're within bounds
-            if (row >= 0 && row < 3 && col >= 0 && col < 3) {
-                // Only handle click if cell is empty
-                if (mBoard[row][col].equals("") && mClickListener != null) {
-                    mClickListener.onCellClick(row, col);
-                }
+    public void doFrame(long frameTimeNanos) {
+        mFrameCallbackPosted = false;
+        
+        // Frames that arrive more than half an interval late skipped at least one vsync
+        if (mLastFrameNanos != 0) {
+            long missed = (frameTimeNanos - mLastFrameNanos + mFrameIntervalNanos / 2) / mFrameIntervalNanos - 1;
+            if (missed > 0) {
+                mDroppedFrames += missed;
             }
         }
+        mLastFrameNanos = frameTimeNanos;
+        mFrameTimeNanos = frameTimeNanos;
+        mAnimatedFrames++;
+        
+        if (frameTimeNanos < mAnimationEndNanos) {
+            mFrameCallbackPosted = true;
+            mChoreographer.postFrameCallback(this);
+        } else {
+            mLastFrameNanos = 0;
+        }
+        invalidateBoardRect(mAnimationBounds.left, mAnimationBounds.top, mAnimationBounds.right, mAnimationBounds.bottom);
+        if (!mFrameCallbackPosted) {
+            mAnimationBounds.setEmpty();
+        }
+    }
+    
+    /**
+     * Finishes every animation at once; the next draw shows the final state
+     */
+    private void stopAnimations() {
+        if (mFrameCallbackPosted) {
+            mChoreographer.removeFrameCallback(this);
+            mFrameCallbackPosted = false;
+        }
+        Arrays.fill(mPlacedAtNanos, 0);
+        mWinLineStartNanos = 0;
+        mAnimationEndNanos = 0;
+        mLastFrameNanos = 0;
+        mAnimationBounds.setEmpty();
+    }
+    
+    /**
+     * Draw time, in milliseconds, at the given percentile (50, 95, 99...) since the last reset
+     */
+    public double getDrawTimePercentileMs(double percentile) {
+        return mDrawTimes.percentileMs(percentile);
+    }
+    
+    public int getDrawCount() {
+        return mDrawTimes.count();
+    }
+    
+    /**
+     * Vsyncs missed between animation frames since the last reset
+     */
+    public int getDroppedFrameCount() {
+        return mDroppedFrames;
+    }
+    
+    public int getAnimatedFrameCount() {
+        return mAnimatedFrames;
+    }
+    
+    public void resetFrameMetrics() {
+        mDrawTimes.reset();
+        mDroppedFrames = 0;
+        mAnimatedFrames = 0;
+    }
+    
+    public String getFrameMetricsSummary() {
+        return String.format(Locale.US,
+                "%d draws, p50 %.1f ms, p95 %.1f ms, p99 %.1f ms, max %.1f ms; %d animated frames, %d dropped at %.0f Hz",
+                mDrawTimes.count(), mDrawTimes.percentileMs(50), mDrawTimes.percentileMs(95),
+                mDrawTimes.percentileMs(99), mDrawTimes.maxMs(), mAnimatedFrames, mDroppedFrames,
+                1e9 / mFrameIntervalNanos);
+    }
+    
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        // Pinch zooms, a drag pans the zoomed board and a tap without either picks a cell
+        mScaleDetector.onTouchEvent(event);
+        mGestureDetector.onTouchEvent(event);
         return true;
     }
     
+    private void onCellTapped(float x, float y) {
+        if (mCellWidth == 0 || mCellHeight == 0) {
+            return;
+        }
+        
+        // Map the touch back through the viewport to board coordinates
+        int row = (int) Math.floor((y - mOffsetY) / mScale / mCellHeight);
+        int col = (int) Math.floor((x - mOffsetX) / mScale / mCellWidth);
+        
+        // Make sure we're within bounds
+        if (mBoard.isInside(row, col)) {
+            // Only handle click if cell is empty
+            if (mBoard.isEmpty(mBoard.cell(row, col)) && mClickListener != null) {
+                mClickListener.onCellClick(row, col);
+            }
+        }
+    }
+    
     public void setOnCellClickListener(OnCellClickListener listener) {
         mClickListener = listener;
     }
     
-    public void setCellValue(int row, int col, String value) {
-        if (row >= 0 && row < 3 && col >= 0 && col < 3) {
-            mBoard[row][col] = value;
-            invalidate(); // Redraw the view
+    /**
+     * Replaces the board with an empty one of the given dimensions
+     */
+    public void setBoardSize(int size, int winLength) {
+        if (size != mBoard.size() || winLength != mBoard.winLength()) {
+            boolean resized = size != mBoard.size();
+            stopAnimations();
+            mBoard = new GameBoard(size, winLength);
+            if (mPlacedAtNanos.length != mBoard.cellCount()) {
+                mPlacedAtNanos = new long[mBoard.cellCount()];
+            }
+            mOccupied.reset(size);
+            if (resized) {
+                updateLayout();
+                return;
+            }
+        } else {
+            stopAnimations();
+            mBoard.clear();
+            mOccupied.reset(size);
         }
+        invalidate(); // Redraw the view
     }
     
-    public String getCellValue(int row, int col) {
-        if (row >= 0 && row < 3 && col >= 0 && col < 3) {
-            return mBoard[row][col];
+    /**
+     * Places a player's symbol as a game move, so the engine checks the lines through it
+     */
+    public void playMove(int row, int col, int player) {
+        if (mBoard.isInside(row, col)) {
+            boolean hadWinner = mBoard.winStart() >= 0;
+            mBoard.play(mBoard.cell(row, col), player);
+            mOccupied.set(row, col, true);
+            animateCell(row, col, hadWinner);
         }
-        return "";
     }
     
-    public void clearBoard() {
-        for (int i = 0; i < 3; i++) {
-            for (int j = 0; j < 3; j++) {
-                mBoard[i][j] = "";
-            }
+    /**
+     * Takes back the last move of {@code history}, invalidating that cell (or the whole view if
+     * the move had completed a win line). Returns the cell.
+     */
+    public int undoMove(MoveHistory history) {
+        boolean hadWinner = mBoard.winStart() >= 0;
+        int cell = history.undo(mBoard);
+        int size = mBoard.size();
+        mOccupied.set(cell / size, cell % size, false);
+        mPlacedAtNanos[cell] = 0;
+        if (hadWinner && mBoard.winStart() < 0) {
+            mWinLineStartNanos = 0;
+            invalidate(); // The win line crosses other cells
+        } else {
+            invalidateCell(cell / size, cell % size);
         }
-        invalidate(); // Redraw the view
+        return cell;
     }
-
-    public char[] getBoardState() {
-        char[] boardState = new char[9];
-        int index = 0;
-        for (int i = 0; i < 3; i++) {
-            for (int j = 0; j < 3; j++) {
-                String cellValue = mBoard[i][j];
-                if (cellValue.equals("")) {
-                    boardState[index] = ' ';
-                } else {
-                    boardState[index] = cellValue.charAt(0);
-                }
-                index++;
+    
+    /**
+     * Plays the next move of {@code history} (an undone move, or the next one of a replay).
+     * Returns the cell.
+     */
+    public int redoMove(MoveHistory history) {
+        boolean hadWinner = mBoard.winStart() >= 0;
+        int cell = history.redo(mBoard);
+        int size = mBoard.size();
+        mOccupied.set(cell / size, cell % size, true);
+        animateCell(cell / size, cell % size, hadWinner);
+        return cell;
+    }
+    
+    /**
+     * Overwrites a cell with GameBoard.EMPTY, GameBoard.X or GameBoard.O (no move is played)
+     */
+    public void setCell(int row, int col, byte value) {
+        if (mBoard.isInside(row, col) && mBoard.get(mBoard.cell(row, col)) != value) {
+            boolean hadWinner = mBoard.winStart() >= 0;
+            mBoard.set(mBoard.cell(row, col), value);
+            mOccupied.set(row, col, value != GameBoard.EMPTY);
+            if (value != GameBoard.EMPTY) {
+                animateCell(row, col, hadWinner);
+            } else {
+                mPlacedAtNanos[mBoard.cell(row, col)] = 0;
+                invalidateCell(row, col);
             }
         }
+    }
+    
+    public byte getCell(int row, int col) {
+        if (mBoard.isInside(row, col)) {
+            return (byte) mBoard.get(mBoard.cell(row, col));
+        }
+        return GameBoard.EMPTY;
+    }
+    
+    /**
+     * Returns the engine backing this view. Callers query wins, draws and free cells on it
+     * directly instead of reading the board back cell by cell.
+     */
+    public GameBoard getBoard() {
+        return mBoard;
+    }
+    
+    public void clearBoard() {
+        stopAnimations();
+        mBoard.clear();
+        mOccupied.reset(mBoard.size());
+        invalidate(); // Redraw the view
+    }
+    
+    /**
+     * Copies the cells, row by row, into {@code boardState} (at least getBoard().cellCount() long)
+     */
+    public void getBoardState(byte[] boardState) {
+        mBoard.copyCells(boardState);
+    }
+    
+    public byte[] getBoardState() {
+        byte[] boardState = new byte[mBoard.cellCount()];
+        getBoardState(boardState);
         return boardState;
     }
-
-    public void setBoardState(char[] boardState) {
-        int index = 0;
-        for (int i = 0; i < 3; i++) {
-            for (int j = 0; j < 3; j++) {
-                char cellValue = boardState[index];
-                if (cellValue == ' ') {
-                    mBoard[i][j] = "";
-                } else {
-                    mBoard[i][j] = String.valueOf(cellValue);
-                }
-                index++;
+    
+    /**
+     * Replaces the cells, row by row; only the cells that differ are touched
+     */
+    public void setBoardState(byte[] boardState) {
+        int size = mBoard.size();
+        int cells = Math.min(boardState.length, mBoard.cellCount());
+        // A running animation is cut short, which also needs a redraw
+        boolean changed = mFrameCallbackPosted;
+        stopAnimations();
+        for (int i = 0; i < cells; i++) {
+            if (mBoard.get(i) != boardState[i]) {
+                mBoard.set(i, boardState[i]);
+                mOccupied.set(i / size, i % size, boardState[i] != GameBoard.EMPTY);
+                changed = true;
             }
         }
-        invalidate(); // Redraw the view
+        if (changed) {
+            invalidate(); // Redraw the view
+        }
     }
 }
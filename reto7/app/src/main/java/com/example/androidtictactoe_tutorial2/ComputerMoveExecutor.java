@@ -0,0 +1,113 @@
+package com.example.androidtictactoe_tutorial2;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.example.androidtictactoe_tutorial2.game.GameBoard;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs the computer's move search on a background thread so the UI thread never waits for it.
+ *
+ * Each request searches a copy of the board with a deadline. A new request, {@link #cancel()}
+ * or {@link #shutdown()} interrupts the search in progress, and a result is only delivered
+ * (on the main thread) if the board still holds the position that was searched.
+ */
+public class ComputerMoveExecutor {
+    private static final String TAG = "ComputerMoveExecutor";
+
+    /**
+     * Computes a move on the worker thread. The board is a private copy; the search
+     * should return its best move so far once {@code deadline} ({@link System#nanoTime()}) passes.
+     */
+    public interface MoveSearch {
+        int findMove(GameBoard board, long deadline);
+    }
+
+    public interface OnMoveListener {
+        void onMove(int move);
+    }
+
+    private final ExecutorService mExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "computer-move");
+        thread.setPriority(Thread.NORM_PRIORITY - 1);
+        return thread;
+    });
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    // Only touched on the main thread
+    private Future<?> mPending;
+    private int mGeneration;
+
+    /**
+     * Starts searching a move for the current position of {@code board}.
+     *
+     * @param budgetMillis time the search may take before it has to answer
+     * @param minDelayMillis the move is not shown earlier than this after the request,
+     *                       so fast searches still feel like a turn; slow searches use it up
+     */
+    public void requestMove(GameBoard board, MoveSearch search, long budgetMillis,
+                            long minDelayMillis, OnMoveListener listener) {
+        cancel();
+        final int generation = mGeneration;
+        final GameBoard snapshot = new GameBoard(board);
+        final long requestTime = SystemClock.uptimeMillis();
+
+        mPending = mExecutor.submit(() -> {
+            long deadline = System.nanoTime() + budgetMillis * 1_000_000L;
+            int move;
+            try {
+                move = search.findMove(snapshot, deadline);
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Move search failed", e);
+                move = -1;
+            }
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            Log.d(TAG, "Move found in " + (SystemClock.uptimeMillis() - requestTime) + " ms");
+
+            final int result = move;
+            mMainHandler.postAtTime(() -> {
+                if (generation != mGeneration || !isSamePosition(board, snapshot)) {
+                    return;
+                }
+                mPending = null;
+                listener.onMove(result);
+            }, this, requestTime + minDelayMillis);
+        });
+    }
+
+    /**
+     * Stops the search in progress, if any, and drops a result that is still waiting to be shown
+     */
+    public void cancel() {
+        mGeneration++;
+        if (mPending != null) {
+            mPending.cancel(true);
+            mPending = null;
+        }
+        mMainHandler.removeCallbacksAndMessages(this);
+    }
+
+    public boolean isSearching() {
+        return mPending != null;
+    }
+
+    public void shutdown() {
+        cancel();
+        mExecutor.shutdownNow();
+    }
+
+    private static boolean isSamePosition(GameBoard board, GameBoard snapshot) {
+        return board.size() == snapshot.size()
+                && board.winLength() == snapshot.winLength()
+                && board.moveCount() == snapshot.moveCount()
+                && board.positionKey() == snapshot.positionKey();
+    }
+}
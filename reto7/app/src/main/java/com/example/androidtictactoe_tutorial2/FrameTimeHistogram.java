@@ -0,0 +1,57 @@
+package com.example.androidtictactoe_tutorial2;
+
+/**
+ * Histogram of frame durations with fixed 0.1 ms buckets up to 50 ms, so recording a frame
+ * never allocates. Longer frames share the last bucket.
+ */
+class FrameTimeHistogram {
+    private static final long BUCKET_NANOS = 100_000;
+    private static final int BUCKETS = 500;
+
+    private final int[] mCounts = new int[BUCKETS + 1];
+    private int mTotal;
+    private long mMaxNanos;
+
+    void record(long nanos) {
+        int bucket = (int) Math.min(BUCKETS, Math.max(0, nanos) / BUCKET_NANOS);
+        mCounts[bucket]++;
+        mTotal++;
+        if (nanos > mMaxNanos) {
+            mMaxNanos = nanos;
+        }
+    }
+
+    /**
+     * Upper edge, in milliseconds, of the bucket holding the given percentile (0-100)
+     */
+    double percentileMs(double percentile) {
+        if (mTotal == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(percentile / 100.0 * mTotal);
+        long seen = 0;
+        for (int bucket = 0; bucket <= BUCKETS; bucket++) {
+            seen += mCounts[bucket];
+            if (seen >= rank && seen > 0) {
+                return bucket == BUCKETS ? mMaxNanos / 1e6 : (bucket + 1) * BUCKET_NANOS / 1e6;
+            }
+        }
+        return mMaxNanos / 1e6;
+    }
+
+    int count() {
+        return mTotal;
+    }
+
+    double maxMs() {
+        return mMaxNanos / 1e6;
+    }
+
+    void reset() {
+        for (int i = 0; i <= BUCKETS; i++) {
+            mCounts[i] = 0;
+        }
+        mTotal = 0;
+        mMaxNanos = 0;
+    }
+}
@@ -0,0 +1,440 @@
+package com.example.androidtictactoe_tutorial2;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Append-only log of every finished local game, memory-mapped from the app's files directory.
+ *
+ * The file is a header followed by fixed-size records, so recording a game is one sequential
+ * write of {@link #RECORD_SIZE} bytes and record {@code i} is read straight from its offset.
+ * Aggregate statistics are updated as games are appended. Every {@link #CHECKPOINT_INTERVAL}
+ * games (and on {@link #checkpoint()}) they are saved in the header together with the number
+ * of games they cover, so opening the log only replays the games after the last checkpoint.
+ */
+public class GameHistoryLog {
+    private static final String TAG = "GameHistoryLog";
+    private static final String FILE_NAME = "game_history.bin";
+
+    public static final int MODE_TWO_PLAYERS = 0;
+    public static final int MODE_VS_COMPUTER = 1;
+
+    public static final int RESULT_DRAW = 0;
+    public static final int RESULT_X_WINS = 1;
+    public static final int RESULT_O_WINS = 2;
+
+    // Header: magic, version, record size, record count, checkpointed count, then the statistics
+    private static final int MAGIC = 0x54545448; // "TTTH"
+    private static final int VERSION = 1;
+    private static final int OFFSET_COUNT = 12;
+    private static final int OFFSET_CHECKPOINT = 16;
+    private static final int OFFSET_STATS = 64;
+    private static final int HEADER_SIZE = 512;
+
+    // Record: start time, duration, mode, difficulty, result, size, win length, flags,
+    // total and stored move counts, then the moves (one byte each, two above 256 cells)
+    static final int RECORD_SIZE = 128;
+    private static final int MOVES_OFFSET = 22;
+    private static final int MOVE_BYTES = RECORD_SIZE - MOVES_OFFSET;
+    private static final int FLAG_PARTIAL = 1;
+    private static final int FLAG_WIDE_MOVES = 2;
+
+    private static final int CHECKPOINT_INTERVAL = 256;
+    // The file grows by this many records at a time
+    private static final int GROWTH_RECORDS = 1024;
+
+    private static GameHistoryLog instance;
+
+    private final RandomAccessFile mFile;
+    private final FileChannel mChannel;
+    private ByteBuffer mBuffer;
+    private int mCount;
+    private int mCheckpointCount;
+    private final Stats mStats = new Stats();
+
+    public static synchronized GameHistoryLog getInstance(Context context) {
+        if (instance == null) {
+            File file = new File(context.getApplicationContext().getFilesDir(), FILE_NAME);
+            try {
+                instance = new GameHistoryLog(file);
+            } catch (IOException e) {
+                // The history is lost for this run, but games can still be recorded in memory
+                Log.e(TAG, "Could not open " + file, e);
+                instance = new GameHistoryLog();
+            }
+        }
+        return instance;
+    }
+
+    GameHistoryLog(File file) throws IOException {
+        mFile = new RandomAccessFile(file, "rw");
+        mChannel = mFile.getChannel();
+        long length = mChannel.size();
+        if (length < HEADER_SIZE) {
+            mBuffer = mChannel.map(FileChannel.MapMode.READ_WRITE, 0, capacityFor(GROWTH_RECORDS));
+            writeEmptyHeader();
+            return;
+        }
+        mBuffer = mChannel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+        if (mBuffer.getInt(0) != MAGIC || mBuffer.getInt(4) != VERSION || mBuffer.getInt(8) != RECORD_SIZE) {
+            throw new IOException("Unknown history format in " + file);
+        }
+
+        // Records past the end of the file were never completely written
+        long fits = (length - HEADER_SIZE) / RECORD_SIZE;
+        mCount = (int) Math.min(mBuffer.getInt(OFFSET_COUNT), fits);
+        mCheckpointCount = Math.min(mBuffer.getInt(OFFSET_CHECKPOINT), mCount);
+        mStats.read(mBuffer, OFFSET_STATS);
+        Record record = new Record();
+        for (int i = mCheckpointCount; i < mCount; i++) {
+            read(i, record);
+            mStats.add(record);
+        }
+    }
+
+    private GameHistoryLog() {
+        mFile = null;
+        mChannel = null;
+        mBuffer = ByteBuffer.allocate(capacityFor(GROWTH_RECORDS));
+        writeEmptyHeader();
+    }
+
+    private static int capacityFor(int records) {
+        return HEADER_SIZE + records * RECORD_SIZE;
+    }
+
+    private void writeEmptyHeader() {
+        mBuffer.putInt(0, MAGIC);
+        mBuffer.putInt(4, VERSION);
+        mBuffer.putInt(8, RECORD_SIZE);
+        mBuffer.putInt(OFFSET_COUNT, 0);
+        mBuffer.putInt(OFFSET_CHECKPOINT, 0);
+        mStats.write(mBuffer, OFFSET_STATS);
+    }
+
+    /**
+     * Appends a finished game and folds it into the statistics
+     */
+    public synchronized void append(Record record) {
+        int offset = HEADER_SIZE + mCount * RECORD_SIZE;
+        if (offset + RECORD_SIZE > mBuffer.capacity()) {
+            grow();
+        }
+        record.write(mBuffer, offset);
+        // The count goes last: a record is only part of the log once it is complete
+        mCount++;
+        mBuffer.putInt(OFFSET_COUNT, mCount);
+        mStats.add(record);
+
+        if (mCount - mCheckpointCount >= CHECKPOINT_INTERVAL) {
+            saveCheckpoint();
+        }
+    }
+
+    private void grow() {
+        int capacity = capacityFor(mCount + GROWTH_RECORDS);
+        try {
+            if (mChannel != null) {
+                mBuffer = mChannel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+                return;
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Could not grow the history file", e);
+        }
+        ByteBuffer bigger = ByteBuffer.allocate(capacity);
+        mBuffer.position(0);
+        bigger.put(mBuffer);
+        mBuffer = bigger;
+    }
+
+    /**
+     * Saves the statistics with the number of games they cover and flushes the file to disk.
+     * The flush waits for the disk, so call this off the main thread.
+     */
+    public void checkpoint() {
+        ByteBuffer buffer;
+        synchronized (this) {
+            saveCheckpoint();
+            buffer = mBuffer;
+        }
+        // Outside the lock, so games can still be appended while the disk catches up
+        if (buffer instanceof MappedByteBuffer) {
+            ((MappedByteBuffer) buffer).force();
+        }
+    }
+
+    // Only writes the header: the mapping reaches the file by itself, even if the process dies
+    private void saveCheckpoint() {
+        mStats.write(mBuffer, OFFSET_STATS);
+        mCheckpointCount = mCount;
+        mBuffer.putInt(OFFSET_CHECKPOINT, mCheckpointCount);
+    }
+
+    /**
+     * Forgets every game
+     */
+    public synchronized void clear() {
+        mCount = 0;
+        mStats.clear();
+        writeEmptyHeader();
+        saveCheckpoint();
+    }
+
+    public synchronized int size() {
+        return mCount;
+    }
+
+    /**
+     * Reads game {@code index} (0 is the oldest) into {@code out}
+     */
+    public synchronized void read(int index, Record out) {
+        if (index < 0 || index >= mCount) {
+            throw new IndexOutOfBoundsException("Game " + index + " of " + mCount);
+        }
+        out.read(mBuffer, HEADER_SIZE + index * RECORD_SIZE);
+    }
+
+    /**
+     * Returns a copy of the statistics over every game in the log
+     */
+    public synchronized Stats getStats() {
+        Stats copy = new Stats();
+        System.arraycopy(mStats.mCounters, 0, copy.mCounters, 0, Stats.COUNTERS);
+        return copy;
+    }
+
+    /**
+     * One game. MainActivity fills it move by move while the game is played; the log
+     * stores at most the first MOVE_BYTES bytes of moves.
+     */
+    public static class Record {
+        private long mStartMillis;
+        private int mDurationMillis;
+        private int mMode;
+        private int mDifficulty = -1;
+        private int mResult;
+        private int mBoardSize;
+        private int mWinLength;
+        private int mMissingMoves;
+        private int[] mMoves = new int[9];
+        private int mMoveCount;
+        private int mTotalMoves;
+
+        /**
+         * Starts recording a new game
+         *
+         * @param missingMoves moves already on the board that were not recorded (a restored game)
+         */
+        public void start(long startMillis, int missingMoves) {
+            mStartMillis = startMillis;
+            mMissingMoves = missingMoves;
+            mMoveCount = 0;
+            mTotalMoves = missingMoves;
+        }
+
+        public void addMove(int cell) {
+            if (mMoveCount == mMoves.length) {
+                mMoves = Arrays.copyOf(mMoves, 2 * mMoves.length);
+            }
+            mMoves[mMoveCount++] = cell;
+            mTotalMoves++;
+        }
+
+        /**
+         * @param difficulty DifficultyLevel ordinal, or -1 in two player games
+         */
+        public void finish(long endMillis, int mode, int difficulty, int boardSize, int winLength, int result) {
+            mDurationMillis = (int) Math.min(Integer.MAX_VALUE, Math.max(0, endMillis - mStartMillis));
+            mMode = mode;
+            mDifficulty = difficulty;
+            mBoardSize = boardSize;
+            mWinLength = winLength;
+            mResult = result;
+        }
+
+        public long getStartMillis() {
+            return mStartMillis;
+        }
+
+        public int getDurationMillis() {
+            return mDurationMillis;
+        }
+
+        public int getMode() {
+            return mMode;
+        }
+
+        public int getDifficulty() {
+            return mDifficulty;
+        }
+
+        public int getResult() {
+            return mResult;
+        }
+
+        public int getBoardSize() {
+            return mBoardSize;
+        }
+
+        public int getWinLength() {
+            return mWinLength;
+        }
+
+        /**
+         * Moves played in the game, including the ones that were not recorded
+         */
+        public int getTotalMoves() {
+            return mTotalMoves;
+        }
+
+        public int getMissingMoves() {
+            return mMissingMoves;
+        }
+
+        /**
+         * Recorded moves, in order, after the missing ones
+         */
+        public int getMoveCount() {
+            return mMoveCount;
+        }
+
+        public int getMove(int index) {
+            return mMoves[index];
+        }
+
+        public int[] getMoves() {
+            return Arrays.copyOf(mMoves, mMoveCount);
+        }
+
+        private void write(ByteBuffer buffer, int offset) {
+            boolean wide = mBoardSize * mBoardSize > 256;
+            int stored = Math.min(mMoveCount, wide ? MOVE_BYTES / 2 : MOVE_BYTES);
+            int flags = (wide ? FLAG_WIDE_MOVES : 0) | (stored < mTotalMoves ? FLAG_PARTIAL : 0);
+
+            buffer.putLong(offset, mStartMillis);
+            buffer.putInt(offset + 8, mDurationMillis);
+            buffer.put(offset + 12, (byte) mMode);
+            buffer.put(offset + 13, (byte) mDifficulty);
+            buffer.put(offset + 14, (byte) mResult);
+            buffer.put(offset + 15, (byte) mBoardSize);
+            buffer.put(offset + 16, (byte) mWinLength);
+            buffer.put(offset + 17, (byte) flags);
+            buffer.putShort(offset + 18, (short) mTotalMoves);
+            buffer.putShort(offset + 20, (short) stored);
+            // Missing moves are the ones before the recording started, so they are not stored
+            int moves = offset + MOVES_OFFSET;
+            for (int i = 0; i < stored; i++) {
+                if (wide) {
+                    buffer.putShort(moves + 2 * i, (short) mMoves[i]);
+                } else {
+                    buffer.put(moves + i, (byte) mMoves[i]);
+                }
+            }
+        }
+
+        private void read(ByteBuffer buffer, int offset) {
+            mStartMillis = buffer.getLong(offset);
+            mDurationMillis = buffer.getInt(offset + 8);
+            mMode = buffer.get(offset + 12);
+            mDifficulty = buffer.get(offset + 13);
+            mResult = buffer.get(offset + 14);
+            mBoardSize = buffer.get(offset + 15) & 0xff;
+            mWinLength = buffer.get(offset + 16) & 0xff;
+            boolean wide = (buffer.get(offset + 17) & FLAG_WIDE_MOVES) != 0;
+            mTotalMoves = buffer.getShort(offset + 18) & 0xffff;
+            mMoveCount = buffer.getShort(offset + 20) & 0xffff;
+            mMissingMoves = mTotalMoves - mMoveCount;
+            if (mMoves.length < mMoveCount) {
+                mMoves = new int[mMoveCount];
+            }
+            int moves = offset + MOVES_OFFSET;
+            for (int i = 0; i < mMoveCount; i++) {
+                mMoves[i] = wide ? buffer.getShort(moves + 2 * i) & 0xffff : buffer.get(moves + i) & 0xff;
+            }
+        }
+    }
+
+    /**
+     * Game counts by mode and result, and against the computer by difficulty and result
+     */
+    public static class Stats {
+        // Up to 8 difficulty levels, so new ones fit without changing the file format
+        private static final int MAX_DIFFICULTIES = 8;
+        private static final int BY_DIFFICULTY = 6;
+        private static final int TOTAL_MOVES = BY_DIFFICULTY + 3 * MAX_DIFFICULTIES;
+        private static final int TOTAL_MILLIS = TOTAL_MOVES + 1;
+        private static final int COUNTERS = TOTAL_MILLIS + 1;
+
+        private final long[] mCounters = new long[COUNTERS];
+
+        private void add(Record record) {
+            int mode = record.mMode;
+            int result = record.mResult;
+            if (mode < MODE_TWO_PLAYERS || mode > MODE_VS_COMPUTER || result < RESULT_DRAW || result > RESULT_O_WINS) {
+                return;
+            }
+            mCounters[3 * mode + result]++;
+            if (mode == MODE_VS_COMPUTER && record.mDifficulty >= 0 && record.mDifficulty < MAX_DIFFICULTIES) {
+                mCounters[BY_DIFFICULTY + 3 * record.mDifficulty + result]++;
+            }
+            mCounters[TOTAL_MOVES] += record.mTotalMoves;
+            mCounters[TOTAL_MILLIS] += record.mDurationMillis;
+        }
+
+        private void clear() {
+            Arrays.fill(mCounters, 0);
+        }
+
+        private void write(ByteBuffer buffer, int offset) {
+            for (int i = 0; i < COUNTERS; i++) {
+                buffer.putLong(offset + 8 * i, mCounters[i]);
+            }
+        }
+
+        private void read(ByteBuffer buffer, int offset) {
+            for (int i = 0; i < COUNTERS; i++) {
+                mCounters[i] = buffer.getLong(offset + 8 * i);
+            }
+        }
+
+        /**
+         * Games of a mode (MODE_*) that ended with a result (RESULT_*)
+         */
+        public long getCount(int mode, int result) {
+            return mCounters[3 * mode + result];
+        }
+
+        /**
+         * Games against the computer at a difficulty (DifficultyLevel ordinal) that ended with a result
+         */
+        public long getCountByDifficulty(int difficulty, int result) {
+            return mCounters[BY_DIFFICULTY + 3 * difficulty + result];
+        }
+
+        public long getGames() {
+            long games = 0;
+            for (int i = 0; i < BY_DIFFICULTY; i++) {
+                games += mCounters[i];
+            }
+            return games;
+        }
+
+        public double getAverageMoves() {
+            long games = getGames();
+            return games == 0 ? 0 : (double) mCounters[TOTAL_MOVES] / games;
+        }
+
+        public double getAverageDurationSeconds() {
+            long games = getGames();
+            return games == 0 ? 0 : mCounters[TOTAL_MILLIS] / 1000.0 / games;
+        }
+    }
+}
@@ -19,6 +19,7 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.androidtictactoe_tutorial2.api.AvailableGame;
 import com.example.androidtictactoe_tutorial2.api.AvailableGamesResponse;
+import com.example.androidtictactoe_tutorial2.api.ConditionalResponse;
 import com.example.androidtictactoe_tutorial2.api.CreateGameResponse;
 import com.example.androidtictactoe_tutorial2.api.GameSessionManager;
 import com.example.androidtictactoe_tutorial2.api.JoinGameResponse;
@@ -100,7 +101,8 @@ public class GameListActivity extends AppCompatActivity {
 
         executorService.execute(() -> {
             try {
-                AvailableGamesResponse response = sessionManager.getApiClient().getAvailableGames();
+                ConditionalResponse<AvailableGamesResponse> result = sessionManager.getApiClient().getAvailableGames();
+                AvailableGamesResponse response = result.getBody();
 
                 new Handler(Looper.getMainLooper()).post(() -> {
                     setLoading(false);
@@ -108,6 +110,9 @@ public class GameListActivity extends AppCompatActivity {
                     if (response.getDetail() != null && !response.getDetail().isEmpty()) {
                         Toast.makeText(this, "Error: " + response.getDetail(), Toast.LENGTH_LONG).show();
                         showNoGames(true);
+                    } else if (result.isNotModified() && !availableGames.isEmpty()) {
+                        // La lista no cambió y ya se muestra: no hace falta volver a dibujarla
+                        showNoGames(false);
                     } else {
                         availableGames.clear();
                         if (response.getAvailable_games() != null) {
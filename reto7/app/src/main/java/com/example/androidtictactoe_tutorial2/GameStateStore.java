@@ -0,0 +1,256 @@
+package com.example.androidtictactoe_tutorial2;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.AtomicFile;
+import android.util.Log;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Saves the game in progress as one small binary blob, so it can be resumed after the app is closed.
+ *
+ * {@link #save} encodes the snapshot on the calling thread and hands the bytes to a background
+ * writer, which waits {@link #COALESCE_DELAY_MS} so a burst of moves costs a single write. The file
+ * is replaced atomically through {@link AtomicFile} (write a temporary file, sync, rename) and
+ * carries a CRC32, so a process killed mid-write leaves the previous game, never a corrupt one.
+ * {@link #loadAsync} reads on the same writer thread, so the main thread never touches the disk.
+ */
+public class GameStateStore {
+    private static final String TAG = "GameStateStore";
+    private static final String FILE_NAME = "saved_game.bin";
+    private static final int MAGIC = 0x54545453; // "TTTS"
+    private static final int VERSION = 2;
+    private static final long COALESCE_DELAY_MS = 250;
+
+    // Stands for "no saved game" in mPending
+    private static final byte[] CLEARED = new byte[0];
+
+    private static GameStateStore instance;
+
+    public interface OnLoadedListener {
+        /**
+         * Called on the main thread; {@code snapshot} is null if there is no saved game or it is damaged
+         */
+        void onLoaded(Snapshot snapshot);
+    }
+
+    private final AtomicFile mFile;
+    private final ScheduledExecutorService mWriter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "game-state-writer");
+        thread.setPriority(Thread.NORM_PRIORITY - 1);
+        return thread;
+    });
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    // Latest state not yet written, guarded by this
+    private byte[] mPending;
+    private boolean mWriteScheduled;
+
+    public static synchronized GameStateStore getInstance(Context context) {
+        if (instance == null) {
+            instance = new GameStateStore(new File(context.getApplicationContext().getFilesDir(), FILE_NAME));
+        }
+        return instance;
+    }
+
+    private GameStateStore(File file) {
+        mFile = new AtomicFile(file);
+    }
+
+    /**
+     * Replaces the saved game; the write happens shortly after on the background thread
+     */
+    public void save(Snapshot snapshot) {
+        enqueue(encode(snapshot), COALESCE_DELAY_MS);
+    }
+
+    /**
+     * Forgets the saved game (it ended or the player chose a new one)
+     */
+    public void clear() {
+        enqueue(CLEARED, COALESCE_DELAY_MS);
+    }
+
+    /**
+     * Writes whatever is pending now instead of waiting for more changes, still off the calling thread
+     */
+    public void flush() {
+        synchronized (this) {
+            if (mPending == null) {
+                return;
+            }
+        }
+        mWriter.execute(this::writePending);
+    }
+
+    /**
+     * Runs other disk work (like flushing the history log) on the same low priority writer thread
+     */
+    public void runInBackground(Runnable task) {
+        mWriter.execute(task);
+    }
+
+    private void enqueue(byte[] state, long delayMs) {
+        synchronized (this) {
+            mPending = state;
+            if (mWriteScheduled) {
+                return;
+            }
+            mWriteScheduled = true;
+        }
+        mWriter.schedule(this::writePending, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void writePending() {
+        byte[] state;
+        synchronized (this) {
+            state = mPending;
+            mPending = null;
+            mWriteScheduled = false;
+        }
+        if (state == null) {
+            return;
+        }
+        if (state == CLEARED) {
+            mFile.delete();
+            return;
+        }
+        FileOutputStream out = null;
+        try {
+            out = mFile.startWrite();
+            out.write(state);
+            mFile.finishWrite(out);
+        } catch (IOException e) {
+            Log.e(TAG, "Could not save the game", e);
+            if (out != null) {
+                mFile.failWrite(out);
+            }
+        }
+    }
+
+    /**
+     * Reads the saved game on the writer thread and hands it to {@code listener} on the main thread
+     */
+    public void loadAsync(OnLoadedListener listener) {
+        mWriter.execute(() -> {
+            Snapshot snapshot = load();
+            mMainHandler.post(() -> listener.onLoaded(snapshot));
+        });
+    }
+
+    /**
+     * Reads the saved game, including a change not written yet; null if there is none or it is damaged
+     */
+    private Snapshot load() {
+        byte[] state;
+        synchronized (this) {
+            state = mPending;
+        }
+        if (state == CLEARED) {
+            return null;
+        }
+        try {
+            if (state == null) {
+                state = mFile.readFully();
+            }
+            return decode(state);
+        } catch (IOException e) {
+            // Missing, or damaged by something other than an interrupted save (which AtomicFile undoes)
+            Log.w(TAG, "No saved game to restore", e);
+            return null;
+        }
+    }
+
+    // Blob: magic, version, payload length, payload, CRC32 of the payload
+    static byte[] encode(Snapshot snapshot) {
+        try {
+            ByteArrayOutputStream payloadBytes = new ByteArrayOutputStream(32 + snapshot.moves.length);
+            DataOutputStream payload = new DataOutputStream(payloadBytes);
+            payload.writeByte(snapshot.boardSize);
+            payload.writeByte(snapshot.winLength);
+            payload.writeUTF(snapshot.gameMode);
+            payload.writeLong(snapshot.gameStartMillis);
+            payload.writeByte(snapshot.firstPlayer);
+            payload.writeShort(snapshot.moves.length);
+            payload.write(snapshot.moves);
+            byte[] body = payloadBytes.toByteArray();
+            CRC32 crc = new CRC32();
+            crc.update(body);
+
+            ByteArrayOutputStream blobBytes = new ByteArrayOutputStream(body.length + 20);
+            DataOutputStream blob = new DataOutputStream(blobBytes);
+            blob.writeInt(MAGIC);
+            blob.writeInt(VERSION);
+            blob.writeInt(body.length);
+            blob.write(body);
+            blob.writeLong(crc.getValue());
+            return blobBytes.toByteArray();
+        } catch (IOException e) {
+            // Writing to memory doesn't fail
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static Snapshot decode(byte[] state) throws IOException {
+        DataInputStream blob = new DataInputStream(new ByteArrayInputStream(state));
+        if (blob.readInt() != MAGIC || blob.readInt() != VERSION) {
+            throw new IOException("Unknown saved game format");
+        }
+        int length = blob.readInt();
+        if (length < 0 || length > state.length) {
+            throw new IOException("Bad saved game length " + length);
+        }
+        byte[] body = new byte[length];
+        blob.readFully(body);
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        if (blob.readLong() != crc.getValue()) {
+            throw new IOException("Saved game checksum mismatch");
+        }
+
+        DataInputStream payload = new DataInputStream(new ByteArrayInputStream(body));
+        int boardSize = payload.readUnsignedByte();
+        int winLength = payload.readUnsignedByte();
+        String gameMode = payload.readUTF();
+        long gameStartMillis = payload.readLong();
+        int firstPlayer = payload.readUnsignedByte();
+        byte[] moves = new byte[payload.readUnsignedShort()];
+        payload.readFully(moves);
+        return new Snapshot(boardSize, winLength, gameMode, gameStartMillis, firstPlayer, moves);
+    }
+
+    /**
+     * Everything needed to resume a game. The board and whose turn it is follow from the moves,
+     * kept in MoveHistory's encoding (one byte per move) and replayed on restore.
+     */
+    public static class Snapshot {
+        public final int boardSize;
+        public final int winLength;
+        public final String gameMode;
+        public final long gameStartMillis;
+        public final int firstPlayer;
+        public final byte[] moves;
+
+        public Snapshot(int boardSize, int winLength, String gameMode, long gameStartMillis,
+                        int firstPlayer, byte[] moves) {
+            this.boardSize = boardSize;
+            this.winLength = winLength;
+            this.gameMode = gameMode;
+            this.gameStartMillis = gameStartMillis;
+            this.firstPlayer = firstPlayer;
+            this.moves = moves;
+        }
+    }
+}
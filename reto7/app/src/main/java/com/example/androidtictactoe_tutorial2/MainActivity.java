@@ -6,6 +6,8 @@ import android.content.DialogInterface;
 import android.content.SharedPreferences;
 import android.os.Bundle;
 import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
 import android.view.Menu;
 import android.view.MenuInflater;
 import android.view.MenuItem;
@@ -14,25 +16,62 @@ import android.widget.Button;
 import android.widget.TextView;
 import android.widget.Toast;
 import androidx.appcompat.app.AppCompatActivity;
+
+import com.example.androidtictactoe_tutorial2.game.ComputerPlayer;
+import com.example.androidtictactoe_tutorial2.game.DifficultyLevel;
+import com.example.androidtictactoe_tutorial2.game.GameBoard;
+import com.example.androidtictactoe_tutorial2.game.MoveHistory;
+import com.example.androidtictactoe_tutorial2.game.PerfectPlayTable;
+
+import java.io.IOException;
 import java.util.Random;
 
 public class MainActivity extends AppCompatActivity {
-    
-    // The computer's difficulty levels
-    public enum DifficultyLevel {Easy, Harder, Expert};
+    private static final String TAG = "MainActivity";
     
     // Current difficulty level
     private DifficultyLevel mDifficultyLevel = DifficultyLevel.Expert;
+
+    // Solved game table used by the Expert level, loaded once per process
+    private static PerfectPlayTable sPerfectPlayTable;
+
+    // Picks the computer's moves; only used from the computer move worker thread
+    private ComputerPlayer mComputerPlayer;
+
+    // The search runs off the UI thread; it must answer within the budget and is never
+    // shown sooner than the delay, so quick moves still feel like a turn
+    private static final long COMPUTER_MOVE_BUDGET_MS = 1500;
+    private static final long COMPUTER_MOVE_DELAY_MS = 500;
+    private final ComputerMoveExecutor mComputerMoveExecutor = new ComputerMoveExecutor();
+
+    // Board sizes offered in the menu: {size, pieces in a row}
+    private static final int[][] BOARD_SIZES = {{3, 3}, {7, 4}, {15, 5}};
+    private int mBoardSize = 3;
+    private int mWinLength = 3;
     
     private BoardView boardView;
     private boolean player1Turn = true;
-    private int roundCount = 0;
     private TextView textViewPlayer;
     private String gameMode;
     private boolean isComputerTurn = false;
     private SharedPreferences preferences;
     private Random random;
     private SoundManager soundManager;
+    
+    // Every finished game is appended to the history log; the current one is recorded move by move
+    private GameHistoryLog mHistory;
+    private final GameHistoryLog.Record mCurrentGame = new GameHistoryLog.Record();
+    
+    // Moves of the current game, one byte each; undo takes back a single symbol through the engine
+    private MoveHistory mMoves = new MoveHistory(9, GameBoard.X);
+    
+    // A replay plays the game's moves again from their encoding, one every REPLAY_MOVE_DELAY_MS
+    private static final long REPLAY_MOVE_DELAY_MS = 400;
+    private final Handler mReplayHandler = new Handler(Looper.getMainLooper());
+    private MoveHistory mReplay;
+    
+    // The game in progress is saved after every move so it survives the app being closed or killed
+    private GameStateStore mGameStateStore;
 
     // Game state variables
     private boolean mGameOver = false;
@@ -55,6 +94,10 @@ public class MainActivity extends AppCompatActivity {
         preferences = getSharedPreferences("ttt_prefs", MODE_PRIVATE);
         random = new Random();
         soundManager = new SoundManager(this);
+        mHistory = GameHistoryLog.getInstance(this);
+        mGameStateStore = GameStateStore.getInstance(this);
+        loadPerfectPlayTable();
+        mComputerPlayer = new ComputerPlayer(sPerfectPlayTable, Runtime.getRuntime().availableProcessors());
 
         // Get game mode from intent
         gameMode = getIntent().getStringExtra("GAME_MODE");
@@ -80,8 +123,8 @@ public class MainActivity extends AppCompatActivity {
 
         // Initialize basic game state
         player1Turn = true;
-        roundCount = 0;
         mGameOver = false;
+        mCurrentGame.start(System.currentTimeMillis(), 0);
 
         // Set up basic UI
         updatePlayerText();
@@ -127,17 +170,26 @@ public class MainActivity extends AppCompatActivity {
         mTies = preferences.getInt("mTies", 0);
         int difficultyOrdinal = preferences.getInt("difficulty", DifficultyLevel.Expert.ordinal());
         mDifficultyLevel = DifficultyLevel.values()[difficultyOrdinal];
+        mBoardSize = preferences.getInt("board_size", 3);
+        mWinLength = preferences.getInt("win_length", 3);
+        boardView.setBoardSize(mBoardSize, mWinLength);
+        mMoves.reset(boardView.getBoard().cellCount(), GameBoard.X);
 
-        // Check if there's a saved game to continue
-        boolean hasSavedGame = preferences.getBoolean("saved_game_active", false);
-        if (hasSavedGame && savedInstanceState == null) {
-            showContinueGameDialog();
+        // Check if there's a saved game to continue; the file is read off the main thread
+        if (savedInstanceState == null) {
+            mGameStateStore.loadAsync(this::onSavedGameLoaded);
         }
 
         // Handle saved instance state (for orientation changes)
         if (savedInstanceState != null) {
             // Restore game state from saved instance
-            boardView.setBoardState(savedInstanceState.getCharArray("board"));
+            mBoardSize = savedInstanceState.getInt("boardSize", mBoardSize);
+            mWinLength = savedInstanceState.getInt("winLength", mWinLength);
+            boardView.setBoardSize(mBoardSize, mWinLength);
+            byte[] moves = savedInstanceState.getByteArray("moves");
+            if (moves != null) {
+                restoreMoves(moves, savedInstanceState.getInt("firstPlayer", GameBoard.X));
+            }
             mGameOver = savedInstanceState.getBoolean("mGameOver");
             mHumanWins = savedInstanceState.getInt("mHumanWins");
             mComputerWins = savedInstanceState.getInt("mComputerWins");
@@ -145,9 +197,9 @@ public class MainActivity extends AppCompatActivity {
             textViewPlayer.setText(savedInstanceState.getCharSequence("info"));
             mGoFirst = savedInstanceState.getChar("mGoFirst");
             player1Turn = savedInstanceState.getBoolean("player1Turn");
-            roundCount = savedInstanceState.getInt("roundCount");
             isComputerTurn = savedInstanceState.getBoolean("isComputerTurn");
             gameMode = savedInstanceState.getString("gameMode");
+            mCurrentGame.start(savedInstanceState.getLong("gameStartMillis"), 0);
 
             int difficultyIndex = savedInstanceState.getInt("difficulty");
             if (difficultyIndex >= 0 && difficultyIndex < DifficultyLevel.values().length) {
@@ -162,13 +214,14 @@ public class MainActivity extends AppCompatActivity {
 
             // If it's computer's turn to move after orientation change, make the move
             if (gameMode.equals("VS_COMPUTER") && isComputerTurn && !mGameOver) {
-                new Handler().postDelayed(this::makeComputerMove, 500);
+                makeComputerMove();
             }
         }
     }
 
     public void onCellClick(int row, int col) {
-        if (!boardView.getCellValue(row, col).equals("")) {
+        GameBoard board = boardView.getBoard();
+        if (!board.isEmpty(board.cell(row, col))) {
             return;
         }
         
@@ -178,22 +231,22 @@ public class MainActivity extends AppCompatActivity {
         }
         
         if (player1Turn) {
-            boardView.setCellValue(row, col, "X");
+            boardView.playMove(row, col, GameBoard.X);
             soundManager.playMoveX();
         } else {
-            boardView.setCellValue(row, col, "O");
+            boardView.playMove(row, col, GameBoard.O);
             soundManager.playMoveO();
         }
         
-        roundCount++;
+        mMoves.push(board.cell(row, col));
         
-        if (checkForWin()) {
+        if (checkForWin(player1Turn ? GameBoard.X : GameBoard.O)) {
             if (player1Turn) {
                 player1Wins();
             } else {
                 player2Wins();
             }
-        } else if (roundCount == 9) {
+        } else if (board.isFull()) {
             draw();
         } else {
             player1Turn = !player1Turn;
@@ -202,44 +255,14 @@ public class MainActivity extends AppCompatActivity {
             // En modo contra máquina, hacer que la máquina juegue
             if (gameMode.equals("VS_COMPUTER") && !player1Turn) {
                 isComputerTurn = true;
-                new Handler().postDelayed(this::makeComputerMove, 500); // Delay para mejor UX
+                makeComputerMove();
             }
+            saveGameState();
         }
     }
     
-    private boolean checkForWin() {
-        String[][] field = new String[3][3];
-        
-        for (int i = 0; i < 3; i++) {
-            for (int j = 0; j < 3; j++) {
-                field[i][j] = boardView.getCellValue(i, j);
-            }
-        }
-        
-        // Verificar filas
-        for (int i = 0; i < 3; i++) {
-            if (field[i][0].equals(field[i][1]) && field[i][0].equals(field[i][2]) && !field[i][0].equals("")) {
-                return true;
-            }
-        }
-        
-        // Verificar columnas
-        for (int i = 0; i < 3; i++) {
-            if (field[0][i].equals(field[1][i]) && field[0][i].equals(field[2][i]) && !field[0][i].equals("")) {
-                return true;
-            }
-        }
-        
-        // Verificar diagonales
-        if (field[0][0].equals(field[1][1]) && field[0][0].equals(field[2][2]) && !field[0][0].equals("")) {
-            return true;
-        }
-        
-        if (field[0][2].equals(field[1][1]) && field[0][2].equals(field[2][0]) && !field[0][2].equals("")) {
-            return true;
-        }
-        
-        return false;
+    private boolean checkForWin(int player) {
+        return boardView.getBoard().hasWon(player);
     }
     
     private void player1Wins() {
@@ -247,13 +270,12 @@ public class MainActivity extends AppCompatActivity {
         if (gameMode.equals("VS_COMPUTER")) {
             message = "¡Ganaste!";
             mHumanWins++;
-            updateStats("vs_computer_wins");
             soundManager.playWin(); // Sonido de victoria
         } else {
             message = "¡Jugador 1 (X) gana!";
-            updateStats("two_player_wins_1");
             soundManager.playWin(); // Sonido de victoria
         }
+        recordGame(GameHistoryLog.RESULT_X_WINS);
         Toast.makeText(this, message, Toast.LENGTH_SHORT).show();
         textViewPlayer.setText(message);
         mGameOver = true;
@@ -261,9 +283,7 @@ public class MainActivity extends AppCompatActivity {
         disableButtons();
 
         // Clear any saved game since this one is finished
-        SharedPreferences.Editor ed = preferences.edit();
-        ed.putBoolean("saved_game_active", false);
-        ed.apply();
+        mGameStateStore.clear();
     }
     
     private void player2Wins() {
@@ -271,13 +291,12 @@ public class MainActivity extends AppCompatActivity {
         if (gameMode.equals("VS_COMPUTER")) {
             message = "¡La máquina gana!";
             mComputerWins++;
-            updateStats("vs_computer_losses");
             soundManager.playLose(); // Sonido de derrota
         } else {
             message = "¡Jugador 2 (O) gana!";
-            updateStats("two_player_wins_2");
             soundManager.playWin(); // Sonido de victoria
         }
+        recordGame(GameHistoryLog.RESULT_O_WINS);
         Toast.makeText(this, message, Toast.LENGTH_SHORT).show();
         textViewPlayer.setText(message);
         mGameOver = true;
@@ -285,17 +304,17 @@ public class MainActivity extends AppCompatActivity {
         disableButtons();
 
         // Clear any saved game since this one is finished
-        SharedPreferences.Editor ed = preferences.edit();
-        ed.putBoolean("saved_game_active", false);
-        ed.apply();
+        mGameStateStore.clear();
     }
     
     private void draw() {
         Toast.makeText(this, "¡Empate!", Toast.LENGTH_SHORT).show();
         textViewPlayer.setText("¡Empate!");
         mTies++;
+        recordGame(GameHistoryLog.RESULT_DRAW);
         soundManager.playDraw(); // Sonido de empate
         mGameOver = true;
+        mGameStateStore.clear();
         displayScores();
         disableButtons();
     }
@@ -322,17 +341,20 @@ public class MainActivity extends AppCompatActivity {
     }
     
     private void resetGame() {
+        mComputerMoveExecutor.cancel();
+        stopReplay();
         boardView.clearBoard();
         boardView.setOnCellClickListener(this::onCellClick);
 
         // Reset game state variables
         mGameOver = false;
-        roundCount = 0;
         isComputerTurn = false;
+        mCurrentGame.start(System.currentTimeMillis(), 0);
 
         // Selección aleatoria del primer jugador
         player1Turn = random.nextBoolean();
         mGoFirst = player1Turn ? 'H' : 'C';
+        mMoves.reset(boardView.getBoard().cellCount(), player1Turn ? GameBoard.X : GameBoard.O);
 
         updatePlayerText();
 
@@ -347,6 +369,110 @@ public class MainActivity extends AppCompatActivity {
         resetGame();
     }
     
+    /**
+     * Takes back the last move; against the computer, back to the player's previous turn
+     */
+    private void undoMove() {
+        if (mGameOver || mReplay != null || !mMoves.canUndo()) {
+            Toast.makeText(this, "No hay jugadas para deshacer", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        mComputerMoveExecutor.cancel();
+        boolean vsComputer = gameMode.equals("VS_COMPUTER");
+        do {
+            boardView.undoMove(mMoves);
+        } while (vsComputer && mMoves.canUndo() && mMoves.sideToMove() != GameBoard.X);
+        onMovesChanged();
+    }
+    
+    /**
+     * Plays again the moves taken back by undo, up to the player's next turn against the computer
+     */
+    private void redoMove() {
+        if (mGameOver || mReplay != null || !mMoves.canRedo()) {
+            Toast.makeText(this, "No hay jugadas para rehacer", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        mComputerMoveExecutor.cancel();
+        boolean vsComputer = gameMode.equals("VS_COMPUTER");
+        do {
+            boardView.redoMove(mMoves);
+        } while (vsComputer && mMoves.canRedo() && mMoves.sideToMove() != GameBoard.X);
+        onMovesChanged();
+    }
+    
+    /**
+     * Undone moves never ended the game (undo is not offered once it is over), so only the turn
+     * changes here
+     */
+    private void onMovesChanged() {
+        updateTurnFromMoves();
+        if (isComputerTurn) {
+            makeComputerMove();
+        }
+        saveGameState();
+    }
+    
+    private void updateTurnFromMoves() {
+        player1Turn = mMoves.sideToMove() == GameBoard.X;
+        isComputerTurn = gameMode.equals("VS_COMPUTER") && !player1Turn;
+        updatePlayerText();
+    }
+    
+    /**
+     * Rebuilds the board by playing the encoded moves; the history keeps reading the same bytes
+     */
+    private void restoreMoves(byte[] moves, int firstPlayer) {
+        boardView.clearBoard();
+        mMoves = MoveHistory.wrap(moves, moves.length, boardView.getBoard().cellCount(), firstPlayer);
+        while (mMoves.canRedo()) {
+            boardView.redoMove(mMoves);
+        }
+    }
+    
+    /**
+     * Plays the game's moves again from an empty board, streamed from their encoding
+     */
+    private void replayGame() {
+        if (mReplay != null || !mMoves.canUndo()) {
+            return;
+        }
+        mComputerMoveExecutor.cancel();
+        boardView.setOnCellClickListener(null);
+        boardView.clearBoard();
+        byte[] moves = mMoves.encode();
+        mReplay = MoveHistory.wrap(moves, moves.length, boardView.getBoard().cellCount(), mMoves.firstPlayer());
+        mReplayHandler.postDelayed(this::replayNextMove, REPLAY_MOVE_DELAY_MS);
+    }
+    
+    private void replayNextMove() {
+        int cell = boardView.redoMove(mReplay);
+        if (boardView.getBoard().get(cell) == GameBoard.X) {
+            soundManager.playMoveX();
+        } else {
+            soundManager.playMoveO();
+        }
+        if (mReplay.canRedo()) {
+            mReplayHandler.postDelayed(this::replayNextMove, REPLAY_MOVE_DELAY_MS);
+            return;
+        }
+        // The board is back where the game was; an unfinished game goes on
+        mReplay = null;
+        if (!mGameOver) {
+            boardView.setOnCellClickListener(this::onCellClick);
+            if (isComputerTurn) {
+                makeComputerMove();
+            }
+        }
+    }
+    
+    private void stopReplay() {
+        if (mReplay != null) {
+            mReplayHandler.removeCallbacksAndMessages(null);
+            mReplay = null;
+        }
+    }
+    
     private void showDifficultyDialog() {
         AlertDialog.Builder builder = new AlertDialog.Builder(this);
         builder.setTitle(R.string.difficulty_choose);
@@ -354,7 +480,8 @@ public class MainActivity extends AppCompatActivity {
         final CharSequence[] levels = {
             getResources().getString(R.string.difficulty_easy),
             getResources().getString(R.string.difficulty_harder),
-            getResources().getString(R.string.difficulty_expert)};
+            getResources().getString(R.string.difficulty_expert),
+            getResources().getString(R.string.difficulty_master)};
         
         // Set selected based on current difficulty level
         int selected = 0;
@@ -364,6 +491,8 @@ public class MainActivity extends AppCompatActivity {
             selected = 1;
         else if (mDifficultyLevel == DifficultyLevel.Expert)
             selected = 2;
+        else if (mDifficultyLevel == DifficultyLevel.Master)
+            selected = 3;
             
         builder.setSingleChoiceItems(levels, selected,
             new DialogInterface.OnClickListener() {
@@ -380,6 +509,9 @@ public class MainActivity extends AppCompatActivity {
                         case 2:
                             mDifficultyLevel = DifficultyLevel.Expert;
                             break;
+                        case 3:
+                            mDifficultyLevel = DifficultyLevel.Master;
+                            break;
                     }
                     // Display the selected difficulty level
                     Toast.makeText(getApplicationContext(), levels[item],
@@ -389,6 +521,31 @@ public class MainActivity extends AppCompatActivity {
         builder.create().show();
     }
     
+    private void showBoardSizeDialog() {
+        AlertDialog.Builder builder = new AlertDialog.Builder(this);
+        builder.setTitle(R.string.board_size_choose);
+
+        final CharSequence[] sizes = new CharSequence[BOARD_SIZES.length];
+        int selected = 0;
+        for (int i = 0; i < BOARD_SIZES.length; i++) {
+            sizes[i] = getString(R.string.board_size_option, BOARD_SIZES[i][0], BOARD_SIZES[i][0], BOARD_SIZES[i][1]);
+            if (BOARD_SIZES[i][0] == mBoardSize && BOARD_SIZES[i][1] == mWinLength) {
+                selected = i;
+            }
+        }
+
+        builder.setSingleChoiceItems(sizes, selected, (dialog, item) -> {
+            dialog.dismiss();
+            mBoardSize = BOARD_SIZES[item][0];
+            mWinLength = BOARD_SIZES[item][1];
+            boardView.setBoardSize(mBoardSize, mWinLength);
+            // A different board starts a new game
+            resetGame();
+            Toast.makeText(getApplicationContext(), sizes[item], Toast.LENGTH_SHORT).show();
+        });
+        builder.create().show();
+    }
+    
     private void showQuitDialog() {
         AlertDialog.Builder builder = new AlertDialog.Builder(this);
         builder.setMessage(R.string.quit_confirm)
@@ -421,191 +578,132 @@ public class MainActivity extends AppCompatActivity {
     }
     
     private void makeComputerMove() {
-        int[] move = getBestMove();
-        if (move[0] != -1 && move[1] != -1) {
-            boardView.setCellValue(move[0], move[1], "O");
-            soundManager.playMoveO(); // Sonido cuando la computadora mueve
-            roundCount++;
-            
-            if (checkForWin()) {
-                player2Wins();
-            } else if (roundCount == 9) {
-                draw();
-            } else {
-                player1Turn = true;
-                isComputerTurn = false;
-                updatePlayerText();
-            }
-        }
+        final DifficultyLevel level = mDifficultyLevel;
+        final ComputerPlayer player = mComputerPlayer;
+        mComputerMoveExecutor.requestMove(boardView.getBoard(),
+                (board, deadline) -> {
+                    int move = player.getBestMove(board, GameBoard.O, level, deadline);
+                    Log.d(TAG, player.getLastSearchInfo());
+                    return move;
+                },
+                COMPUTER_MOVE_BUDGET_MS, COMPUTER_MOVE_DELAY_MS, this::applyComputerMove);
     }
     
-    private int[] getBestMove() {
-        String[][] field = new String[3][3];
-        for (int i = 0; i < 3; i++) {
-            for (int j = 0; j < 3; j++) {
-                field[i][j] = boardView.getCellValue(i, j);
+    private void applyComputerMove(int move) {
+        // Whatever happens next, the board must not stay locked on the computer's turn
+        isComputerTurn = false;
+        GameBoard board = boardView.getBoard();
+        if (move == -1) {
+            // No move: the search failed (any free cell will do) or the game is already decided
+            move = board.randomEmptyCell(random);
+            if (move == -1) {
+                endGameFromBoard();
+                return;
             }
+            Log.w(TAG, "The engine returned no move, playing a random one");
         }
         
-        if (mDifficultyLevel == DifficultyLevel.Easy) {
-            // Easy: Always make random moves
-            return getRandomMove();
-        } else if (mDifficultyLevel == DifficultyLevel.Harder) {
-            // Harder: Try to win, otherwise random
-            int[] winningMove = getWinningMove(field);
-            if (winningMove[0] != -1) {
-                return winningMove;
-            }
-            return getRandomMove();
+        boardView.playMove(move / mBoardSize, move % mBoardSize, GameBoard.O);
+        soundManager.playMoveO(); // Sonido cuando la computadora mueve
+        mMoves.push(move);
+        
+        if (checkForWin(GameBoard.O)) {
+            player2Wins();
+        } else if (board.isFull()) {
+            draw();
         } else {
-            // Expert: Try to win, block, then strategic moves
-            // 1. Intentar ganar
-            int[] winningMove = getWinningMove(field);
-            if (winningMove[0] != -1) {
-                return winningMove;
-            }
-            
-            // 2. Bloquear al oponente
-            int[] blockingMove = getBlockingMove(field);
-            if (blockingMove[0] != -1) {
-                return blockingMove;
-            }
-            
-            // 3. Tomar el centro
-            if (field[1][1].equals("")) {
-                return new int[]{1, 1};
-            }
-            
-            // 4. Tomar una esquina
-            int[][] corners = {{0, 0}, {0, 2}, {2, 0}, {2, 2}};
-            for (int[] corner : corners) {
-                if (field[corner[0]][corner[1]].equals("")) {
-                    return corner;
-                }
-            }
-            
-            // 5. Tomar cualquier casilla libre
-            return getRandomMove();
-        }
-    }
-    
-    private int[] getRandomMove() {
-        for (int i = 0; i < 3; i++) {
-            for (int j = 0; j < 3; j++) {
-                if (boardView.getCellValue(i, j).equals("")) {
-                    if (random.nextInt(9) == 0) { // Random chance to pick this spot
-                        return new int[]{i, j};
-                    }
-                }
-            }
-        }
-        // If no spot was randomly selected, pick first available
-        for (int i = 0; i < 3; i++) {
-            for (int j = 0; j < 3; j++) {
-                if (boardView.getCellValue(i, j).equals("")) {
-                    return new int[]{i, j};
-                }
-            }
+            player1Turn = true;
+            updatePlayerText();
+            saveGameState();
         }
-        return new int[]{-1, -1};
     }
     
-    private int[] getWinningMove(String[][] field) {
-        for (int i = 0; i < 3; i++) {
-            for (int j = 0; j < 3; j++) {
-                if (field[i][j].equals("")) {
-                    field[i][j] = "O";
-                    if (checkWinForPlayer(field, "O")) {
-                        field[i][j] = ""; // Reset
-                        return new int[]{i, j};
-                    }
-                    field[i][j] = ""; // Reset
-                }
-            }
+    /**
+     * Ends the game with the result the board already shows, unless it has been ended
+     */
+    private void endGameFromBoard() {
+        if (mGameOver) {
+            return;
         }
-        return new int[]{-1, -1};
-    }
-    
-    private int[] getBlockingMove(String[][] field) {
-        for (int i = 0; i < 3; i++) {
-            for (int j = 0; j < 3; j++) {
-                if (field[i][j].equals("")) {
-                    field[i][j] = "X";
-                    if (checkWinForPlayer(field, "X")) {
-                        field[i][j] = ""; // Reset
-                        return new int[]{i, j};
-                    }
-                    field[i][j] = ""; // Reset
-                }
-            }
+        if (checkForWin(GameBoard.X)) {
+            player1Wins();
+        } else if (checkForWin(GameBoard.O)) {
+            player2Wins();
+        } else {
+            draw();
         }
-        return new int[]{-1, -1};
     }
     
-    private boolean checkWinForPlayer(String[][] field, String player) {
-        // Verificar filas
-        for (int i = 0; i < 3; i++) {
-            if (field[i][0].equals(player) && field[i][1].equals(player) && field[i][2].equals(player)) {
-                return true;
-            }
-        }
-        
-        // Verificar columnas
-        for (int i = 0; i < 3; i++) {
-            if (field[0][i].equals(player) && field[1][i].equals(player) && field[2][i].equals(player)) {
-                return true;
-            }
-        }
-        
-        // Verificar diagonales
-        if (field[0][0].equals(player) && field[1][1].equals(player) && field[2][2].equals(player)) {
-            return true;
+    private void loadPerfectPlayTable() {
+        if (sPerfectPlayTable != null) {
+            return;
         }
-        
-        if (field[0][2].equals(player) && field[1][1].equals(player) && field[2][0].equals(player)) {
-            return true;
+        try {
+            sPerfectPlayTable = PerfectPlayTable.load(getResources().openRawResource(R.raw.perfect_play));
+        } catch (IOException e) {
+            // The table is bundled with the app; solving it again takes a few milliseconds
+            sPerfectPlayTable = PerfectPlayTable.solve();
         }
-        
-        return false;
     }
     
-    private void updateStats(String statKey) {
-        SharedPreferences.Editor editor = preferences.edit();
-        int currentValue = preferences.getInt(statKey, 0);
-        editor.putInt(statKey, currentValue + 1);
-        editor.apply();
+    /**
+     * Appends the finished game to the history log, which keeps the statistics shown in the menu
+     */
+    private void recordGame(int result) {
+        boolean vsComputer = gameMode.equals("VS_COMPUTER");
+        for (int i = 0; i < mMoves.size(); i++) {
+            mCurrentGame.addMove(mMoves.get(i));
+        }
+        mCurrentGame.finish(System.currentTimeMillis(),
+                vsComputer ? GameHistoryLog.MODE_VS_COMPUTER : GameHistoryLog.MODE_TWO_PLAYERS,
+                vsComputer ? mDifficultyLevel.ordinal() : -1, mBoardSize, mWinLength, result);
+        mHistory.append(mCurrentGame);
     }
     
     @Override
     protected void onStop() {
         super.onStop();
+        if (boardView != null) {
+            Log.d(TAG, "Board frames: " + boardView.getFrameMetricsSummary());
+        }
+        if (soundManager != null) {
+            Log.d(TAG, "Audio: " + soundManager.getAudioStatsSummary());
+        }
+        // The checkpoint waits for the disk, so it runs on the state writer's thread
+        mGameStateStore.runInBackground(mHistory::checkpoint);
+        
         // Save persistent data
         SharedPreferences.Editor ed = preferences.edit();
         ed.putInt("mHumanWins", mHumanWins);
         ed.putInt("mComputerWins", mComputerWins);
         ed.putInt("mTies", mTies);
         ed.putInt("difficulty", mDifficultyLevel.ordinal());
+        ed.putInt("board_size", mBoardSize);
+        ed.putInt("win_length", mWinLength);
+
+        ed.apply();
 
-        // Save current game state if game is in progress
+        // Save current game state if game is in progress, without waiting for more moves
         if (!mGameOver && boardView != null) {
-            ed.putString("saved_board", boardToString(boardView.getBoardState()));
-            ed.putBoolean("saved_game_active", true);
-            ed.putBoolean("saved_player1_turn", player1Turn);
-            ed.putInt("saved_round_count", roundCount);
-            ed.putBoolean("saved_is_computer_turn", isComputerTurn);
-            ed.putString("saved_game_mode", gameMode);
-            ed.putString("saved_player_text", textViewPlayer.getText().toString());
+            saveGameState();
         } else {
-            ed.putBoolean("saved_game_active", false);
+            mGameStateStore.clear();
         }
-
-        ed.apply();
+        mGameStateStore.flush();
+    }
+    
+    private void saveGameState() {
+        mGameStateStore.save(new GameStateStore.Snapshot(mBoardSize, mWinLength, gameMode,
+                mCurrentGame.getStartMillis(), mMoves.firstPlayer(), mMoves.encode()));
     }
 
     @Override
     protected void onSaveInstanceState(Bundle outState) {
         super.onSaveInstanceState(outState);
-        outState.putCharArray("board", boardView.getBoardState());
+        outState.putByteArray("moves", mMoves.encode());
+        outState.putInt("firstPlayer", mMoves.firstPlayer());
+        outState.putInt("boardSize", mBoardSize);
+        outState.putInt("winLength", mWinLength);
         outState.putBoolean("mGameOver", mGameOver);
         outState.putInt("mHumanWins", mHumanWins);
         outState.putInt("mComputerWins", mComputerWins);
@@ -613,15 +711,20 @@ public class MainActivity extends AppCompatActivity {
         outState.putCharSequence("info", textViewPlayer.getText());
         outState.putChar("mGoFirst", mGoFirst);
         outState.putBoolean("player1Turn", player1Turn);
-        outState.putInt("roundCount", roundCount);
         outState.putBoolean("isComputerTurn", isComputerTurn);
         outState.putString("gameMode", gameMode);
         outState.putInt("difficulty", mDifficultyLevel.ordinal());
+        outState.putLong("gameStartMillis", mCurrentGame.getStartMillis());
     }
 
     @Override
     protected void onDestroy() {
         super.onDestroy();
+        mComputerMoveExecutor.shutdown();
+        stopReplay();
+        if (mComputerPlayer != null) {
+            mComputerPlayer.shutdown();
+        }
         if (soundManager != null) {
             soundManager.release();
         }
@@ -652,12 +755,24 @@ public class MainActivity extends AppCompatActivity {
         if (id == R.id.new_game) {
             startNewGame();
             return true;
+        } else if (id == R.id.undo_move) {
+            undoMove();
+            return true;
+        } else if (id == R.id.redo_move) {
+            redoMove();
+            return true;
+        } else if (id == R.id.replay_game) {
+            replayGame();
+            return true;
         } else if (id == R.id.ai_difficulty) {
             showDifficultyDialog();
             return true;
         } else if (id == R.id.reset_scores) {
             resetScores();
             return true;
+        } else if (id == R.id.board_size) {
+            showBoardSizeDialog();
+            return true;
         } else {
             return super.onOptionsItemSelected(item);
         }
@@ -679,72 +794,53 @@ public class MainActivity extends AppCompatActivity {
         Toast.makeText(this, "Scores reset", Toast.LENGTH_SHORT).show();
     }
 
-    private void showContinueGameDialog() {
+    private void onSavedGameLoaded(GameStateStore.Snapshot saved) {
+        // The activity may have been closed while the file was being read
+        if (saved != null && !isFinishing() && !isDestroyed()) {
+            showContinueGameDialog(saved);
+        }
+    }
+
+    private void showContinueGameDialog(GameStateStore.Snapshot saved) {
         AlertDialog.Builder builder = new AlertDialog.Builder(this);
         builder.setTitle("Juego Guardado")
                 .setMessage("¿Quieres continuar el juego anterior?")
-                .setPositiveButton("Continuar", (dialog, which) -> restoreSavedGame())
+                .setPositiveButton("Continuar", (dialog, which) -> restoreSavedGame(saved))
                 .setNegativeButton("Nuevo Juego", (dialog, which) -> {
                     // Clear saved game
-                    SharedPreferences.Editor ed = preferences.edit();
-                    ed.putBoolean("saved_game_active", false);
-                    ed.apply();
+                    mGameStateStore.clear();
                     startNewGame();
                 })
                 .setCancelable(false)
                 .show();
     }
 
-    private void restoreSavedGame() {
+    private void restoreSavedGame(GameStateStore.Snapshot saved) {
+        mComputerMoveExecutor.cancel();
+        stopReplay();
         try {
-            String savedBoard = preferences.getString("saved_board", "");
-            if (!savedBoard.isEmpty()) {
-                boardView.setBoardState(stringToBoard(savedBoard));
-            }
-
-            player1Turn = preferences.getBoolean("saved_player1_turn", true);
-            roundCount = preferences.getInt("saved_round_count", 0);
-            isComputerTurn = preferences.getBoolean("saved_is_computer_turn", false);
-            gameMode = preferences.getString("saved_game_mode", "TWO_PLAYERS");
-            String savedText = preferences.getString("saved_player_text", "");
-            if (!savedText.isEmpty()) {
-                textViewPlayer.setText(savedText);
-            }
+            mBoardSize = saved.boardSize;
+            mWinLength = saved.winLength;
+            boardView.setBoardSize(mBoardSize, mWinLength);
+            gameMode = saved.gameMode;
+            restoreMoves(saved.moves, saved.firstPlayer);
+            updateTurnFromMoves();
 
             mGameOver = false; // Game is being restored, so it's not over
-
-            // Clear the saved game flag
-            SharedPreferences.Editor ed = preferences.edit();
-            ed.putBoolean("saved_game_active", false);
-            ed.apply();
+            mCurrentGame.start(saved.gameStartMillis, 0);
 
             // Update UI
             displayScores();
 
+            // Resume the computer's turn if the game was saved while it was thinking
+            if (gameMode.equals("VS_COMPUTER") && isComputerTurn) {
+                makeComputerMove();
+            }
+
         } catch (Exception e) {
             // If restoration fails, start new game
             Toast.makeText(this, "Error al restaurar juego, empezando nuevo", Toast.LENGTH_SHORT).show();
             startNewGame();
         }
     }
-
-    private String boardToString(char[] board) {
-        StringBuilder sb = new StringBuilder();
-        for (char c : board) {
-            sb.append(c);
-        }
-        return sb.toString();
-    }
-
-    private char[] stringToBoard(String boardString) {
-        char[] board = new char[9];
-        for (int i = 0; i < Math.min(boardString.length(), 9); i++) {
-            board[i] = boardString.charAt(i);
-        }
-        // Fill remaining with spaces if string is shorter
-        for (int i = boardString.length(); i < 9; i++) {
-            board[i] = ' ';
-        }
-        return board;
-    }
 }
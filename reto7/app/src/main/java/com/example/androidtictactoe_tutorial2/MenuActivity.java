@@ -1,7 +1,6 @@
 package com.example.androidtictactoe_tutorial2;
 
 import android.content.Intent;
-import android.content.SharedPreferences;
 import android.os.Bundle;
 import android.view.View;
 import android.widget.Button;
@@ -11,14 +10,14 @@ import androidx.appcompat.app.AppCompatActivity;
 public class MenuActivity extends AppCompatActivity {
     
     private TextView textViewStats;
-    private SharedPreferences preferences;
+    private GameHistoryLog history;
     
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_menu);
         
-        preferences = getSharedPreferences("TicTacToeStats", MODE_PRIVATE);
+        history = GameHistoryLog.getInstance(this);
         
         textViewStats = findViewById(R.id.text_view_stats);
         
@@ -48,17 +47,17 @@ public class MenuActivity extends AppCompatActivity {
     }
     
     private void resetStats() {
-        SharedPreferences.Editor editor = preferences.edit();
-        editor.clear();
-        editor.apply();
+        history.clear();
         updateStats();
     }
     
     private void updateStats() {
-        int twoPlayerWins1 = preferences.getInt("two_player_wins_1", 0);
-        int twoPlayerWins2 = preferences.getInt("two_player_wins_2", 0);
-        int vsComputerWins = preferences.getInt("vs_computer_wins", 0);
-        int vsComputerLosses = preferences.getInt("vs_computer_losses", 0);
+        // Kept up to date by the history log as games are appended, without reading the games
+        GameHistoryLog.Stats gameStats = history.getStats();
+        long twoPlayerWins1 = gameStats.getCount(GameHistoryLog.MODE_TWO_PLAYERS, GameHistoryLog.RESULT_X_WINS);
+        long twoPlayerWins2 = gameStats.getCount(GameHistoryLog.MODE_TWO_PLAYERS, GameHistoryLog.RESULT_O_WINS);
+        long vsComputerWins = gameStats.getCount(GameHistoryLog.MODE_VS_COMPUTER, GameHistoryLog.RESULT_X_WINS);
+        long vsComputerLosses = gameStats.getCount(GameHistoryLog.MODE_VS_COMPUTER, GameHistoryLog.RESULT_O_WINS);
         
         String stats = "ESTADÍSTICAS:\n\n" +
                 "Dos Jugadores:\n" +
@@ -66,7 +65,8 @@ public class MenuActivity extends AppCompatActivity {
                 "Jugador 2: " + twoPlayerWins2 + " victorias\n\n" +
                 "Contra Máquina:\n" +
                 "Tú: " + vsComputerWins + " victorias\n" +
-                "Máquina: " + vsComputerLosses + " victorias";
+                "Máquina: " + vsComputerLosses + " victorias\n\n" +
+                "Partidas jugadas: " + gameStats.getGames();
         
         textViewStats.setText(stats);
     }
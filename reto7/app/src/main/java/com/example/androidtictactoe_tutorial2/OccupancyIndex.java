@@ -0,0 +1,53 @@
+package com.example.androidtictactoe_tutorial2;
+
+import java.util.Arrays;
+
+/**
+ * Occupied cells of the board grouped in 8x8 tiles, one bit per cell in a long. Drawing a
+ * region visits its tiles and the symbols in them instead of every cell of the region.
+ */
+class OccupancyIndex {
+    static final int TILE_SHIFT = 3;
+    private static final int TILE_MASK = (1 << TILE_SHIFT) - 1;
+
+    private long[] mTiles = new long[1];
+    private int mTilesPerRow = 1;
+
+    /**
+     * Empties the index for a board of {@code size} x {@code size} cells
+     */
+    void reset(int size) {
+        mTilesPerRow = (size + TILE_MASK) >> TILE_SHIFT;
+        int tiles = mTilesPerRow * mTilesPerRow;
+        if (mTiles.length != tiles) {
+            mTiles = new long[tiles];
+        } else {
+            Arrays.fill(mTiles, 0);
+        }
+    }
+
+    void set(int row, int col, boolean occupied) {
+        int tile = (row >> TILE_SHIFT) * mTilesPerRow + (col >> TILE_SHIFT);
+        long bit = 1L << (((row & TILE_MASK) << TILE_SHIFT) | (col & TILE_MASK));
+        if (occupied) {
+            mTiles[tile] |= bit;
+        } else {
+            mTiles[tile] &= ~bit;
+        }
+    }
+
+    /**
+     * Occupied cells of a tile; bit {@code r * 8 + c} is cell (tileRow * 8 + r, tileCol * 8 + c)
+     */
+    long tile(int tileRow, int tileCol) {
+        return mTiles[tileRow * mTilesPerRow + tileCol];
+    }
+
+    static int rowOf(int tileRow, int bit) {
+        return (tileRow << TILE_SHIFT) + (bit >> TILE_SHIFT);
+    }
+
+    static int colOf(int tileCol, int bit) {
+        return (tileCol << TILE_SHIFT) + (bit & TILE_MASK);
+    }
+}
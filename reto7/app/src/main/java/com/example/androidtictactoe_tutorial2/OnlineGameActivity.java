@@ -3,6 +3,7 @@ package com.example.androidtictactoe_tutorial2;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
+import android.util.Log;
 import android.view.View;
 import android.widget.Button;
 import android.widget.TextView;
@@ -10,18 +11,26 @@ import android.widget.Toast;
 
 import androidx.appcompat.app.AppCompatActivity;
 
+import com.example.androidtictactoe_tutorial2.api.GameApiClient;
+import com.example.androidtictactoe_tutorial2.api.GameEvent;
+import com.example.androidtictactoe_tutorial2.api.GameEventStream;
 import com.example.androidtictactoe_tutorial2.api.GameSessionManager;
 import com.example.androidtictactoe_tutorial2.api.GameStateResponse;
 import com.example.androidtictactoe_tutorial2.api.MakeMoveResponse;
+import com.example.androidtictactoe_tutorial2.game.GameBoard;
 
+import java.io.IOException;
 import java.util.List;
+import java.util.Objects;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Actividad para jugar Triqui online usando la API REST
  */
 public class OnlineGameActivity extends AppCompatActivity {
+    private static final String TAG = "OnlineGameActivity";
 
     private BoardView boardView;
     private TextView textViewPlayer;
@@ -35,20 +44,28 @@ public class OnlineGameActivity extends AppCompatActivity {
     private String playerSymbol;
     private String currentTurn;
     private boolean gameFinished = false;
-    private boolean isPolling = false;
-
-    // Polling configuration
-    private static final int POLLING_INTERVAL = 2000; // 2 seconds
-    private final Handler pollingHandler = new Handler(Looper.getMainLooper());
-    private final Runnable pollingRunnable = new Runnable() {
-        @Override
-        public void run() {
-            if (!gameFinished && !isFinishing()) {
-                pollGameState();
-                pollingHandler.postDelayed(this, POLLING_INTERVAL);
-            }
-        }
-    };
+
+    // Las jugadas llegan por WebSocket; solo si el socket no se puede establecer se usa
+    // long polling
+    private GameEventStream eventStream;
+    private boolean eventsUnavailable = false;
+
+    // Long polling (fallback): cada consulta espera en el servidor hasta que el estado cambie o
+    // pasen LONG_POLL_TIMEOUT_MS; el planificador decide cuándo va la siguiente (en pausa durante
+    // nuestro turno, pronto tras una jugada, espaciadas ante errores o si nada cambia)
+    private static final long LONG_POLL_TIMEOUT_MS = 30000;
+    // Errores seguidos tras los que se avisa al jugador de que no hay conexión
+    private static final int ERRORS_BEFORE_NOTICE = 3;
+    private final PollingScheduler pollingScheduler = new PollingScheduler();
+    private ExecutorService pollingExecutor;
+    // Cada bucle de consultas sigue mientras su generación sea la actual
+    private volatile int pollingGeneration;
+    private volatile boolean isPolling = false;
+    private volatile long stateVersion = -1;
+    // Para servidores que no informan la versión: el último tablero consultado
+    private volatile List<String> lastPolledBoard;
+    // ETag del último estado consultado, para que el servidor pueda contestar 304 sin cuerpo
+    private volatile String stateEtag;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -57,6 +74,7 @@ public class OnlineGameActivity extends AppCompatActivity {
 
         sessionManager = GameSessionManager.getInstance(this);
         executorService = Executors.newSingleThreadExecutor();
+        pollingExecutor = Executors.newCachedThreadPool();
         mainHandler = new Handler(Looper.getMainLooper());
 
         // Obtener datos del intent
@@ -71,7 +89,28 @@ public class OnlineGameActivity extends AppCompatActivity {
 
         initializeViews();
         setupGame();
-        startPolling();
+        eventStream = new GameEventStream(sessionManager.getApiClient(), gameId, new GameEventStream.Listener() {
+            @Override
+            public void onEvent(GameEvent event) {
+                mainHandler.post(() -> applyEvent(event));
+            }
+
+            @Override
+            public void onConnected() {
+                mainHandler.post(() -> stopPolling());
+            }
+
+            @Override
+            public void onUnavailable() {
+                mainHandler.post(() -> {
+                    eventsUnavailable = true;
+                    if (!gameFinished && !isFinishing()) {
+                        startPolling();
+                    }
+                });
+            }
+        });
+        // Las actualizaciones empiezan en onResume
     }
 
     private void initializeViews() {
@@ -113,7 +152,7 @@ public class OnlineGameActivity extends AppCompatActivity {
 
     private void setupGame() {
         updateGameInfo();
-        // El estado inicial se actualizará con el primer polling
+        // El estado inicial llega como primer evento del WebSocket (o con el primer polling)
     }
 
     private void updateGameInfo() {
@@ -134,14 +173,13 @@ public class OnlineGameActivity extends AppCompatActivity {
         }
 
         // Verificar que la celda esté vacía
-        if (!boardView.getCellValue(row, col).equals("")) {
+        GameBoard board = boardView.getBoard();
+        int position = board.cell(row, col);
+        if (!board.isEmpty(position)) {
             return;
         }
 
-        // Calcular posición (0-8)
-        int position = row * 3 + col;
-
-        // Realizar movimiento
+        // Realizar movimiento (posición fila * tamaño + columna)
         makeMove(position);
     }
 
@@ -158,6 +196,7 @@ public class OnlineGameActivity extends AppCompatActivity {
                     if (response.getDetail() != null && !response.getDetail().isEmpty()) {
                         Toast.makeText(this, "Error: " + response.getDetail(), Toast.LENGTH_LONG).show();
                     } else {
+                        pollingScheduler.onLocalMove();
                         // Actualizar tablero con la respuesta del servidor
                         updateBoardFromServer(response.getTablero_nuevo());
                         currentTurn = response.getTurno_siguiente();
@@ -180,59 +219,159 @@ public class OnlineGameActivity extends AppCompatActivity {
         });
     }
 
-    private void pollGameState() {
-        if (isPolling) return;
-        isPolling = true;
+    /**
+     * Consulta el estado una vez tras otra, al ritmo que marca pollingScheduler. El servidor
+     * retiene cada consulta hasta que hay un estado más nuevo que stateVersion, así que un juego
+     * quieto hace una consulta cada 30 s.
+     */
+    private void longPollLoop(int generation) {
+        try {
+            while (pollingScheduler.awaitNextPoll() && generation == pollingGeneration) {
+                pollOnce(generation);
+            }
+        } catch (InterruptedException e) {
+            // La actividad se destruyó
+        }
+    }
 
-        executorService.execute(() -> {
-            try {
-                GameStateResponse response = sessionManager.getApiClient().getGameState(gameId);
+    private void pollOnce(int generation) {
+        GameStateResponse response;
+        long startNanos = System.nanoTime();
+        try {
+            response = sessionManager.getApiClient().getGameState(gameId, stateVersion, stateEtag,
+                    LONG_POLL_TIMEOUT_MS);
+        } catch (IOException e) {
+            // Error de conexión, o la consulta se canceló al detener el polling
+            if (generation == pollingGeneration) {
+                onPollError(e.getMessage());
+            }
+            return;
+        }
 
-                mainHandler.post(() -> {
-                    isPolling = false;
+        if (response == null) {
+            // Sin cambios. Si el servidor retuvo la consulta hasta el plazo se vuelve a esperar
+            // en seguida; un 304 inmediato (solo por el ETag) cuenta como una consulta sin cambios
+            long waitedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+            if (waitedMs >= LONG_POLL_TIMEOUT_MS / 2) {
+                pollingScheduler.onTimedOut();
+            } else {
+                pollingScheduler.onUnchanged();
+            }
+            return;
+        }
+        if (response.getDetail() != null && !response.getDetail().isEmpty()) {
+            onPollError(response.getDetail());
+            return;
+        }
 
-                    if (response.getDetail() != null && !response.getDetail().isEmpty()) {
-                        // Error al obtener estado - continuar intentando
-                        return;
-                    }
+        stateEtag = response.getEtag();
+        Long version = response.getVersion();
+        boolean changed = version != null
+                ? version != stateVersion
+                : !Objects.equals(response.getTablero(), lastPolledBoard);
+        if (!changed) {
+            pollingScheduler.onUnchanged();
+            return;
+        }
+        if (version != null) {
+            stateVersion = version;
+        }
+        lastPolledBoard = response.getTablero();
+        pollingScheduler.onChanged();
+        mainHandler.post(() -> {
+            if (generation == pollingGeneration) {
+                applyGameState(response);
+            }
+        });
+    }
 
-                    // Actualizar tablero
-                    updateBoardFromServer(response.getTablero());
+    private void onPollError(String message) {
+        pollingScheduler.onError();
+        Log.d(TAG, "Poll failed: " + message + " (" + pollingScheduler.getStatsSummary() + ")");
+        if (pollingScheduler.getConsecutiveErrorCount() == ERRORS_BEFORE_NOTICE) {
+            mainHandler.post(() -> Toast.makeText(this, "Sin conexión con el servidor, reintentando...",
+                    Toast.LENGTH_SHORT).show());
+        }
+    }
 
-                    // Actualizar turno actual
-                    currentTurn = response.getTurno_actual();
+    /**
+     * Muestra el estado completo del juego, recibido por polling o como evento del WebSocket
+     */
+    private void applyGameState(GameStateResponse response) {
+        if (gameFinished) return;
 
-                    // Verificar estado del juego
-                    String estado = response.getEstado();
-                    if ("Terminado".equals(estado)) {
-                        handleGameEnd(response.getResultado(), "Juego terminado");
-                    } else if ("En Progreso".equals(estado)) {
-                        updateTurnDisplay();
-                    }
-                });
+        // Actualizar tablero (el servidor puede indicar su tamaño y cuántas en línea)
+        if (response.getTamano_tablero() != null && response.getEn_linea() != null) {
+            resizeBoard(response.getTamano_tablero(), response.getEn_linea());
+        }
+        updateBoardFromServer(response.getTablero());
 
-            } catch (Exception e) {
-                mainHandler.post(() -> {
-                    isPolling = false;
-                    // Error de conexión - continuar intentando en el siguiente polling
-                });
+        // Actualizar turno actual
+        currentTurn = response.getTurno_actual();
+
+        // Verificar estado del juego
+        String estado = response.getEstado();
+        if ("Terminado".equals(estado)) {
+            handleGameEnd(response.getResultado(), "Juego terminado");
+        } else if ("En Progreso".equals(estado)) {
+            updateTurnDisplay();
+        } else {
+            // Esperando al segundo jugador: se sigue consultando
+            pollingScheduler.setPaused(false);
+        }
+    }
+
+    /**
+     * Aplica un evento del WebSocket: una jugada se dibuja sin pedir el tablero completo
+     */
+    private void applyEvent(GameEvent event) {
+        if (gameFinished) return;
+
+        if (GameEvent.TYPE_STATE.equals(event.getTipo())) {
+            if (event.getJuego() != null) {
+                applyGameState(event.getJuego());
             }
-        });
+            return;
+        }
+
+        // La propia jugada también llega como evento; volver a dibujarla no cambia nada
+        GameBoard board = boardView.getBoard();
+        Integer position = event.getPosicion();
+        if (position != null && position >= 0 && position < board.cellCount()) {
+            boardView.setCell(position / board.size(), position % board.size(),
+                    (byte) GameBoard.valueOf(event.getJugador()));
+        }
+        currentTurn = event.getTurno_siguiente();
+
+        if (event.getResultado_final() != null && !event.getResultado_final().equals("N/A")) {
+            handleGameEnd(event.getResultado_final(), null);
+        } else {
+            updateTurnDisplay();
+        }
     }
 
     private void updateBoardFromServer(List<String> serverBoard) {
-        if (serverBoard == null || serverBoard.size() != 9) return;
+        if (serverBoard == null) return;
 
-        for (int i = 0; i < 9; i++) {
-            int row = i / 3;
-            int col = i % 3;
-            String serverValue = serverBoard.get(i);
-            String currentValue = boardView.getCellValue(row, col);
+        // Si el servidor no informa el tamaño, se deduce del número de casillas
+        int size = (int) Math.round(Math.sqrt(serverBoard.size()));
+        if (size * size != serverBoard.size() || size < GameBoard.MIN_SIZE) return;
+        if (size != boardView.getBoard().size()) {
+            resizeBoard(size, Math.min(size, size == 3 ? 3 : 5));
+        }
 
-            // Solo actualizar si el valor cambió
-            if (!serverValue.equals(currentValue)) {
-                boardView.setCellValue(row, col, serverValue);
-            }
+        // setCell solo redibuja las casillas cuyo valor cambió
+        for (int i = 0; i < serverBoard.size(); i++) {
+            boardView.setCell(i / size, i % size, (byte) GameBoard.valueOf(serverBoard.get(i)));
+        }
+    }
+
+    private void resizeBoard(int size, int winLength) {
+        if (size < GameBoard.MIN_SIZE) return;
+        int k = Math.max(GameBoard.MIN_SIZE, Math.min(winLength, Math.min(size, GameBoard.MAX_WIN_LENGTH)));
+        GameBoard board = boardView.getBoard();
+        if (board.size() != size || board.winLength() != k) {
+            boardView.setBoardSize(size, k);
         }
     }
 
@@ -245,11 +384,14 @@ public class OnlineGameActivity extends AppCompatActivity {
         }
 
         textViewPlayer.setText(turnText);
+
+        // Durante nuestro turno nada cambia en el servidor
+        pollingScheduler.setPaused(playerSymbol.equals(currentTurn));
     }
 
     private void handleGameEnd(String resultado, String mensaje) {
         gameFinished = true;
-        stopPolling();
+        stopUpdates();
 
         String endMessage;
         if ("X Gana".equals(resultado) && "X".equals(playerSymbol)) {
@@ -269,34 +411,68 @@ public class OnlineGameActivity extends AppCompatActivity {
         boardView.setOnCellClickListener(null);
     }
 
+    /**
+     * Se suscribe a los eventos del juego, o consulta su estado si el WebSocket no está disponible
+     */
+    private void startUpdates() {
+        if (eventsUnavailable) {
+            startPolling();
+        } else {
+            eventStream.start();
+        }
+    }
+
+    private void stopUpdates() {
+        if (eventStream != null) {
+            eventStream.stop();
+        }
+        stopPolling();
+    }
+
     private void startPolling() {
-        pollingHandler.post(pollingRunnable);
+        if (isPolling || gameFinished || isFinishing()) return;
+        isPolling = true;
+        int generation = ++pollingGeneration;
+        pollingScheduler.start();
+        pollingExecutor.execute(() -> longPollLoop(generation));
     }
 
     private void stopPolling() {
-        pollingHandler.removeCallbacks(pollingRunnable);
+        if (!isPolling) return;
+        isPolling = false;
+        pollingGeneration++;
+        pollingScheduler.stop();
+        sessionManager.getApiClient().cancelLongPolls();
+        Log.d(TAG, "Polling stopped: " + pollingScheduler.getStatsSummary());
     }
 
     @Override
     protected void onResume() {
         super.onResume();
         if (!gameFinished) {
-            startPolling();
+            startUpdates();
         }
     }
 
     @Override
     protected void onPause() {
         super.onPause();
-        stopPolling();
+        stopUpdates();
     }
 
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        stopPolling();
+        stopUpdates();
+        if (eventStream != null) {
+            eventStream.release();
+        }
         if (executorService != null && !executorService.isShutdown()) {
             executorService.shutdown();
         }
+        if (pollingExecutor != null) {
+            pollingExecutor.shutdownNow();
+        }
+        Log.d(TAG, "Connections: " + GameApiClient.getConnectionMetrics().getSummary());
     }
 }
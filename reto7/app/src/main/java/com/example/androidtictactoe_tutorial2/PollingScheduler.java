@@ -0,0 +1,170 @@
+package com.example.androidtictactoe_tutorial2;
+
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides when the online game polls the server next, so requests follow the game's activity.
+ *
+ * The polling thread blocks in {@link #awaitNextPoll()}; the other methods report what happened
+ * and may be called from any thread:
+ * <ul>
+ * <li>While it is the local player's turn nothing can change on the server, so polling pauses.</li>
+ * <li>Right after a move, or when the state changed, the next poll comes quickly.</li>
+ * <li>Answers without changes stretch the interval up to {@link #MAX_IDLE_INTERVAL_MS}; a server
+ * that held the request until its timeout already waited, so the next poll is immediate.</li>
+ * <li>Errors back off exponentially up to {@link #MAX_ERROR_INTERVAL_MS}.</li>
+ * </ul>
+ * Every delay gets a random jitter of {@link #JITTER} either way, so clients that failed together
+ * do not retry together.
+ */
+public class PollingScheduler {
+    public static final long FAST_INTERVAL_MS = 500;
+    public static final long BASE_INTERVAL_MS = 2000;
+    public static final long MAX_IDLE_INTERVAL_MS = 15000;
+    public static final long MAX_ERROR_INTERVAL_MS = 60000;
+    public static final double JITTER = 0.2;
+
+    private final Random mRandom = new Random();
+
+    // All guarded by this
+    private boolean mRunning;
+    private boolean mPaused;
+    private long mIntervalMs = FAST_INTERVAL_MS;
+    private long mNextDelayMs;
+    // Bumped when the pending wait must be recomputed (a local move, or a new start)
+    private int mEpoch;
+    private int mConsecutiveErrors;
+    private int mTotalErrors;
+    private int mPollCount;
+
+    /**
+     * Lets {@link #awaitNextPoll()} return; the first poll is immediate
+     */
+    public synchronized void start() {
+        mRunning = true;
+        mNextDelayMs = 0;
+        mEpoch++;
+        notifyAll();
+    }
+
+    /**
+     * Makes every {@link #awaitNextPoll()} return false
+     */
+    public synchronized void stop() {
+        mRunning = false;
+        notifyAll();
+    }
+
+    /**
+     * Pauses polling while it is the local player's turn
+     */
+    public synchronized void setPaused(boolean paused) {
+        if (mPaused != paused) {
+            mPaused = paused;
+            notifyAll();
+        }
+    }
+
+    /**
+     * The local player moved: the opponent answers next, so look soon
+     */
+    public synchronized void onLocalMove() {
+        mIntervalMs = FAST_INTERVAL_MS;
+        mNextDelayMs = FAST_INTERVAL_MS;
+        mPaused = false;
+        mEpoch++;
+        notifyAll();
+    }
+
+    /**
+     * The poll returned a newer state
+     */
+    public synchronized void onChanged() {
+        mConsecutiveErrors = 0;
+        mIntervalMs = FAST_INTERVAL_MS;
+        mNextDelayMs = FAST_INTERVAL_MS;
+    }
+
+    /**
+     * The poll returned the state already known, straight away
+     */
+    public synchronized void onUnchanged() {
+        mConsecutiveErrors = 0;
+        mIntervalMs = Math.min(MAX_IDLE_INTERVAL_MS, Math.max(BASE_INTERVAL_MS, 2 * mIntervalMs));
+        mNextDelayMs = mIntervalMs;
+    }
+
+    /**
+     * The server held the poll until its timeout without changes
+     */
+    public synchronized void onTimedOut() {
+        mConsecutiveErrors = 0;
+        mNextDelayMs = 0;
+    }
+
+    public synchronized void onError() {
+        mConsecutiveErrors++;
+        mTotalErrors++;
+        int doublings = Math.min(mConsecutiveErrors - 1, 16);
+        mNextDelayMs = Math.min(MAX_ERROR_INTERVAL_MS, BASE_INTERVAL_MS << doublings);
+    }
+
+    /**
+     * Blocks until the next poll is due, waiting out a pause first. Returns false once stopped.
+     */
+    public synchronized boolean awaitNextPoll() throws InterruptedException {
+        int epoch = mEpoch;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(jitter(mNextDelayMs));
+        while (mRunning) {
+            if (mPaused) {
+                wait();
+                continue;
+            }
+            if (epoch != mEpoch) {
+                epoch = mEpoch;
+                deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(jitter(mNextDelayMs));
+            }
+            long remainingMs = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remainingMs <= 0) {
+                mPollCount++;
+                return true;
+            }
+            wait(remainingMs);
+        }
+        return false;
+    }
+
+    private long jitter(long delayMs) {
+        return Math.round(delayMs * (1 + JITTER * (2 * mRandom.nextDouble() - 1)));
+    }
+
+    /**
+     * Delay before the next poll, without jitter
+     */
+    public synchronized long getCurrentIntervalMs() {
+        return mNextDelayMs;
+    }
+
+    public synchronized boolean isPaused() {
+        return mPaused;
+    }
+
+    public synchronized int getConsecutiveErrorCount() {
+        return mConsecutiveErrors;
+    }
+
+    public synchronized int getErrorCount() {
+        return mTotalErrors;
+    }
+
+    public synchronized int getPollCount() {
+        return mPollCount;
+    }
+
+    public synchronized String getStatsSummary() {
+        return String.format(Locale.US, "%d polls, next in %d ms%s, %d errors (%d in a row)",
+                mPollCount, mNextDelayMs, mPaused ? " (paused)" : "", mTotalErrors, mConsecutiveErrors);
+    }
+}
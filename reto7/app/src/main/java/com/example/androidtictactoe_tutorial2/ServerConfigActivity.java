@@ -114,8 +114,7 @@ public class ServerConfigActivity extends AppCompatActivity {
             int serverPort = Integer.parseInt(serverPortStr);
 
             // Actualizar temporalmente la configuración para la prueba
-            sessionManager.setServerIp(serverIp);
-            sessionManager.setServerPort(serverPort);
+            sessionManager.setServer(serverIp, serverPort);
 
             buttonTestConnection.setEnabled(false);
             buttonTestConnection.setText("Probando...");
@@ -159,8 +158,7 @@ public class ServerConfigActivity extends AppCompatActivity {
             int serverPort = Integer.parseInt(serverPortStr);
 
             // Guardar configuración
-            sessionManager.setServerIp(serverIp);
-            sessionManager.setServerPort(serverPort);
+            sessionManager.setServer(serverIp, serverPort);
             sessionManager.setPlayerName(playerName);
 
             Toast.makeText(this, "Configuración guardada", Toast.LENGTH_SHORT).show();
@@ -1,180 +1,237 @@
 package com.example.androidtictactoe_tutorial2;
 
 import android.content.Context;
-import android.media.AudioAttributes;
-import android.media.AudioFormat;
 import android.media.AudioManager;
-import android.media.AudioTrack;
-import android.media.SoundPool;
+import android.util.Log;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 
 public class SoundManager {
-    private static final int MAX_STREAMS = 5;
-    private SoundPool soundPool;
-    private boolean soundEnabled = true;
+    private static final String TAG = "SoundManager";
+    private AudioMixer mixer;
+    private volatile boolean soundEnabled = true;
+    
+    // Sound IDs, which are also the mixer's clip numbers
+    private static final int SOUND_MOVE_X = 0;
+    private static final int SOUND_MOVE_O = 1;
+    private static final int SOUND_WIN = 2;
+    private static final int SOUND_LOSE = 3;
+    private static final int SOUND_DRAW = 4;
+    private static final int[] SOUND_RESOURCES = {
+            R.raw.move_x, R.raw.move_o, R.raw.win_sound, R.raw.lose_sound, R.raw.draw_sound
+    };
+    
+    // Voices mixed at once; the end of a game outranks the moves and may take their voices
+    private static final int MAX_VOICES = 8;
+    private static final int PRIORITY_MOVE = 1;
+    private static final int PRIORITY_RESULT = 2;
+    private static final float MOVE_VOLUME = 0.8f;
+    private static final float RESULT_VOLUME = 1.0f;
     
-    // Sound IDs
-    private int soundMoveX = -1;
-    private int soundMoveO = -1;
-    private int soundWin = -1;
-    private int soundLose = -1;
-    private int soundDraw = -1;
+    // Synthesized tones, used when a sound file could not be loaded.
+    // Notas de cada tono: {frecuencia en Hz, duración en ms}
+    private static final int[][][] TONE_NOTES = {
+            {{800, 150}},                           // Tono agudo para X
+            {{400, 150}},                           // Tono grave para O
+            {{523, 200}, {659, 200}, {784, 400}},   // Victoria: do-mi-sol
+            {{784, 300}, {659, 300}, {523, 500}},   // Derrota: sol-mi-do (descendente)
+            {{600, 800}},                           // Tono neutro largo para empate
+    };
+    private static final int NOTE_GAP_MS = 50;
+    private static final int FADE_MS = 5;
+    private static final double AMPLITUDE = 0.8;
     
     public SoundManager(Context context) {
-        createSoundPool();
-        loadSounds(context);
+        Context appContext = context.getApplicationContext();
+        mixer = new AudioMixer(SOUND_RESOURCES.length, MAX_VOICES);
+        // Los sonidos se decodifican en el hilo de audio, fuera del hilo principal
+        mixer.start(framesPerBurst(appContext), () -> loadSounds(appContext));
     }
     
-    private void createSoundPool() {
-        AudioAttributes audioAttributes = new AudioAttributes.Builder()
-                .setUsage(AudioAttributes.USAGE_GAME)
-                .setContentType(AudioAttributes.CONTENT_TYPE_SONIFICATION)
-                .build();
-                
-        soundPool = new SoundPool.Builder()
-                .setMaxStreams(MAX_STREAMS)
-                .setAudioAttributes(audioAttributes)
-                .build();
+    /**
+     * Frames the device's audio path handles at a time, the natural write size for low latency
+     */
+    private static int framesPerBurst(Context context) {
+        AudioManager audioManager = (AudioManager) context.getSystemService(Context.AUDIO_SERVICE);
+        String frames = audioManager != null
+                ? audioManager.getProperty(AudioManager.PROPERTY_OUTPUT_FRAMES_PER_BUFFER) : null;
+        try {
+            return frames != null ? Integer.parseInt(frames) : 256;
+        } catch (NumberFormatException e) {
+            return 256;
+        }
     }
     
     private void loadSounds(Context context) {
-        try {
-            soundMoveX = soundPool.load(context, R.raw.move_x, 1);
-            soundMoveO = soundPool.load(context, R.raw.move_o, 1);
-            soundWin = soundPool.load(context, R.raw.win_sound, 1);
-            soundLose = soundPool.load(context, R.raw.lose_sound, 1);
-            soundDraw = soundPool.load(context, R.raw.draw_sound, 1);
-        } catch (Exception e) {
-            e.printStackTrace();
-            // Si no se pueden cargar los sonidos, usar sonidos sintéticos
-            generateSyntheticSounds();
+        for (int sound = 0; sound < SOUND_RESOURCES.length; sound++) {
+            try (InputStream in = context.getResources().openRawResource(SOUND_RESOURCES[sound])) {
+                mixer.setClip(sound, decodeWav(in));
+            } catch (IOException | RuntimeException e) {
+                Log.w(TAG, "Could not load sound " + sound, e);
+                // Si no se puede cargar el sonido, usar un tono sintético
+                mixer.setClip(sound, synthesize(TONE_NOTES[sound]));
+            }
         }
     }
     
-    private void generateSyntheticSounds() {
-        // Fallback: crear sonidos sintéticos si no hay archivos
-        soundEnabled = true; // Mantener habilitado para tonos sintéticos
+    /**
+     * Decodes a PCM WAV file into 16-bit mono samples at the mixer's rate, mixing down
+     * the channels and resampling if needed
+     */
+    private static short[] decodeWav(InputStream in) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] chunk = new byte[8192];
+        int read;
+        while ((read = in.read(chunk)) > 0) {
+            bytes.write(chunk, 0, read);
+        }
+        ByteBuffer wav = ByteBuffer.wrap(bytes.toByteArray()).order(ByteOrder.LITTLE_ENDIAN);
+        if (wav.remaining() < 12 || wav.getInt(0) != 0x46464952 || wav.getInt(8) != 0x45564157) {
+            throw new IOException("Not a RIFF/WAVE file");
+        }
+        
+        int channels = 0;
+        int sampleRate = 0;
+        int position = 12;
+        while (position + 8 <= wav.limit()) {
+            int id = wav.getInt(position);
+            int size = wav.getInt(position + 4);
+            int body = position + 8;
+            if (size < 0 || body + size > wav.limit()) {
+                size = wav.limit() - body;
+            }
+            if (id == 0x20746d66) { // "fmt "
+                int format = wav.getShort(body) & 0xffff;
+                channels = wav.getShort(body + 2) & 0xffff;
+                sampleRate = wav.getInt(body + 4);
+                int bits = wav.getShort(body + 14) & 0xffff;
+                if (format != 1 || bits != 16 || channels == 0 || sampleRate <= 0) {
+                    throw new IOException("Unsupported WAV format " + format + ", " + bits + " bits");
+                }
+            } else if (id == 0x61746164) { // "data"
+                if (channels == 0) {
+                    throw new IOException("WAV data before its format");
+                }
+                int frames = size / (2 * channels);
+                short[] mono = new short[frames];
+                for (int i = 0; i < frames; i++) {
+                    int sum = 0;
+                    for (int c = 0; c < channels; c++) {
+                        sum += wav.getShort(body + 2 * (i * channels + c));
+                    }
+                    mono[i] = (short) (sum / channels);
+                }
+                return resample(mono, sampleRate, AudioMixer.SAMPLE_RATE);
+            }
+            position = body + size + (size & 1);
+        }
+        throw new IOException("WAV without data");
     }
     
-    public void playMoveX() {
-        if (soundEnabled && soundPool != null) {
-            if (soundMoveX != -1) {
-                soundPool.play(soundMoveX, 1.0f, 1.0f, 1, 0, 1.0f);
-            } else {
-                playTone(800, 150); // Tono agudo para X
-            }
+    private static short[] resample(short[] pcm, int from, int to) {
+        if (from == to || pcm.length == 0) {
+            return pcm;
+        }
+        short[] out = new short[(int) ((long) pcm.length * to / from)];
+        for (int i = 0; i < out.length; i++) {
+            double source = (double) i * from / to;
+            int index = (int) source;
+            int next = Math.min(index + 1, pcm.length - 1);
+            double fraction = source - index;
+            out[i] = (short) (pcm[index] + (pcm[next] - pcm[index]) * fraction);
         }
+        return out;
     }
     
-    public void playMoveO() {
-        if (soundEnabled && soundPool != null) {
-            if (soundMoveO != -1) {
-                soundPool.play(soundMoveO, 1.0f, 1.0f, 1, 0, 1.0f);
-            } else {
-                playTone(400, 150); // Tono grave para O
+    /**
+     * Sine notes separated by short silences, with a fade in and out of each note to avoid clicks
+     */
+    private static short[] synthesize(int[][] notes) {
+        int sampleRate = AudioMixer.SAMPLE_RATE;
+        int gap = NOTE_GAP_MS * sampleRate / 1000;
+        int total = 0;
+        for (int[] note : notes) {
+            total += note[1] * sampleRate / 1000 + gap;
+        }
+        short[] pcm = new short[total - gap];
+        
+        int offset = 0;
+        int fade = FADE_MS * sampleRate / 1000;
+        for (int[] note : notes) {
+            int samples = note[1] * sampleRate / 1000;
+            double step = 2 * Math.PI * note[0] / sampleRate;
+            for (int i = 0; i < samples; i++) {
+                double envelope = Math.min(1.0, Math.min(i, samples - 1 - i) / (double) fade);
+                pcm[offset + i] = (short) (Math.sin(step * i) * envelope * AMPLITUDE * Short.MAX_VALUE);
             }
+            offset += samples + gap;
         }
+        return pcm;
+    }
+    
+    public void playMoveX() {
+        play(SOUND_MOVE_X, MOVE_VOLUME, PRIORITY_MOVE);
+    }
+    
+    public void playMoveO() {
+        play(SOUND_MOVE_O, MOVE_VOLUME, PRIORITY_MOVE);
     }
     
     public void playWin() {
-        if (soundEnabled && soundPool != null) {
-            if (soundWin != -1) {
-                soundPool.play(soundWin, 1.0f, 1.0f, 1, 0, 1.0f);
-            } else {
-                // Secuencia de victoria: do-mi-sol
-                playToneSequence(new int[]{523, 659, 784}, new int[]{200, 200, 400});
-            }
-        }
+        play(SOUND_WIN, RESULT_VOLUME, PRIORITY_RESULT);
     }
     
     public void playLose() {
-        if (soundEnabled && soundPool != null) {
-            if (soundLose != -1) {
-                soundPool.play(soundLose, 1.0f, 1.0f, 1, 0, 1.0f);
-            } else {
-                // Secuencia de derrota: sol-mi-do (descendente)
-                playToneSequence(new int[]{784, 659, 523}, new int[]{300, 300, 500});
-            }
-        }
+        play(SOUND_LOSE, RESULT_VOLUME, PRIORITY_RESULT);
     }
     
     public void playDraw() {
-        if (soundEnabled && soundPool != null) {
-            if (soundDraw != -1) {
-                soundPool.play(soundDraw, 1.0f, 1.0f, 1, 0, 1.0f);
-            } else {
-                playTone(600, 800); // Tono neutro largo
-            }
-        }
+        play(SOUND_DRAW, RESULT_VOLUME, PRIORITY_RESULT);
     }
     
-    private void playTone(int frequency, int duration) {
-        Thread toneThread = new Thread(() -> {
-            try {
-                int sampleRate = 44100;
-                int numSamples = duration * sampleRate / 1000;
-                double[] sample = new double[numSamples];
-                byte[] generatedSnd = new byte[2 * numSamples];
-                
-                for (int i = 0; i < numSamples; ++i) {
-                    sample[i] = Math.sin(2 * Math.PI * i / (sampleRate / frequency));
-                }
-                
-                int idx = 0;
-                for (double dVal : sample) {
-                    short val = (short) ((dVal * 32767));
-                    generatedSnd[idx++] = (byte) (val & 0x00ff);
-                    generatedSnd[idx++] = (byte) ((val & 0xff00) >>> 8);
-                }
-                
-                AudioTrack audioTrack = new AudioTrack(
-                    AudioManager.STREAM_MUSIC,
-                    sampleRate, 
-                    AudioFormat.CHANNEL_OUT_MONO,
-                    AudioFormat.ENCODING_PCM_16BIT, 
-                    generatedSnd.length,
-                    AudioTrack.MODE_STATIC
-                );
-                
-                audioTrack.write(generatedSnd, 0, generatedSnd.length);
-                audioTrack.play();
-                
-                Thread.sleep(duration);
-                audioTrack.stop();
-                audioTrack.release();
-                
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-        });
-        toneThread.start();
-    }
-    
-    private void playToneSequence(int[] frequencies, int[] durations) {
-        Thread sequenceThread = new Thread(() -> {
-            try {
-                for (int i = 0; i < frequencies.length && i < durations.length; i++) {
-                    playTone(frequencies[i], durations[i]);
-                    Thread.sleep(durations[i] + 50); // Pequeña pausa entre tonos
-                }
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-        });
-        sequenceThread.start();
+    /**
+     * Hands a sound to the mixer; never blocks, allocates or creates threads
+     */
+    private void play(int sound, float volume, int priority) {
+        if (soundEnabled && mixer != null) {
+            mixer.play(sound, volume, priority);
+        }
     }
     
     public void setSoundEnabled(boolean enabled) {
         this.soundEnabled = enabled;
+        if (!enabled && mixer != null) {
+            mixer.stopAll();
+        }
     }
     
     public boolean isSoundEnabled() {
         return soundEnabled;
     }
     
+    /**
+     * Audio buffered ahead of the speaker, in milliseconds
+     */
+    public float getOutputLatencyMs() {
+        return mixer != null ? mixer.getOutputLatencyMs() : 0;
+    }
+    
+    public int getUnderrunCount() {
+        return mixer != null ? mixer.getUnderrunCount() : 0;
+    }
+    
+    public String getAudioStatsSummary() {
+        return mixer != null ? mixer.getStatsSummary() : "released";
+    }
+    
     public void release() {
-        if (soundPool != null) {
-            soundPool.release();
-            soundPool = null;
+        if (mixer != null) {
+            mixer.release();
+            mixer = null;
         }
     }
 }
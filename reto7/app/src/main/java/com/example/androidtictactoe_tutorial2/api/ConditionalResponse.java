@@ -0,0 +1,28 @@
+package com.example.androidtictactoe_tutorial2.api;
+
+/**
+ * Resultado de un GET condicional: la respuesta y si el servidor contestó 304.
+ *
+ * Con un 304 la respuesta es la misma instancia que se devolvió con el último 200 del recurso,
+ * compartida por todos los que la consultan: se lee, no se modifica.
+ */
+public class ConditionalResponse<T extends ApiResponse> {
+    private final T body;
+    private final boolean notModified;
+
+    public ConditionalResponse(T body, boolean notModified) {
+        this.body = body;
+        this.notModified = notModified;
+    }
+
+    public T getBody() {
+        return body;
+    }
+
+    /**
+     * Indica que nada cambió desde la última respuesta completa del recurso
+     */
+    public boolean isNotModified() {
+        return notModified;
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.androidtictactoe_tutorial2.api;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.EventListener;
+import okhttp3.Protocol;
+
+/**
+ * Cuenta cuántas peticiones reutilizan una conexión abierta en lugar de abrir otra.
+ * Un mismo listener sirve a todas las llamadas del cliente compartido.
+ */
+public class ConnectionMetrics extends EventListener {
+    // Peticiones que obtuvieron una conexión, y conexiones nuevas establecidas o fallidas
+    private final AtomicLong acquired = new AtomicLong();
+    private final AtomicLong connected = new AtomicLong();
+    private final AtomicLong failedConnects = new AtomicLong();
+    private final AtomicLong http2Connections = new AtomicLong();
+
+    @Override
+    public void connectionAcquired(Call call, Connection connection) {
+        acquired.incrementAndGet();
+    }
+
+    @Override
+    public void connectEnd(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, Protocol protocol) {
+        connected.incrementAndGet();
+        if (protocol == Protocol.HTTP_2) {
+            http2Connections.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void connectFailed(Call call, InetSocketAddress inetSocketAddress, Proxy proxy,
+                              Protocol protocol, IOException ioe) {
+        failedConnects.incrementAndGet();
+    }
+
+    public long getAcquiredCount() {
+        return acquired.get();
+    }
+
+    public long getNewConnectionCount() {
+        return connected.get();
+    }
+
+    /**
+     * Fracción de peticiones que usaron una conexión ya abierta (0 si aún no hubo ninguna)
+     */
+    public double getReuseRate() {
+        long total = acquired.get();
+        if (total == 0) {
+            return 0;
+        }
+        return Math.max(0, total - connected.get()) / (double) total;
+    }
+
+    public String getSummary() {
+        return String.format(Locale.US, "%d requests, %d new connections (%d HTTP/2, %d failed), %.0f%% reused",
+                acquired.get(), connected.get(), http2Connections.get(), failedConnects.get(), 100 * getReuseRate());
+    }
+}
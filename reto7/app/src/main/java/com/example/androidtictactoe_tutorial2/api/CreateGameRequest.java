@@ -5,6 +5,9 @@ package com.example.androidtictactoe_tutorial2.api;
  */
 public class CreateGameRequest {
     private String jugador_id;
+    // Opcionales: si son null el servidor usa el tablero clásico 3x3
+    private Integer tamano_tablero;
+    private Integer en_linea;
 
     public CreateGameRequest() {}
 
@@ -12,6 +15,12 @@ public class CreateGameRequest {
         this.jugador_id = jugadorId;
     }
 
+    public CreateGameRequest(String jugadorId, int tamanoTablero, int enLinea) {
+        this.jugador_id = jugadorId;
+        this.tamano_tablero = tamanoTablero;
+        this.en_linea = enLinea;
+    }
+
     public String getJugador_id() {
         return jugador_id;
     }
@@ -19,4 +28,20 @@ public class CreateGameRequest {
     public void setJugador_id(String jugador_id) {
         this.jugador_id = jugador_id;
     }
+
+    public Integer getTamano_tablero() {
+        return tamano_tablero;
+    }
+
+    public void setTamano_tablero(Integer tamano_tablero) {
+        this.tamano_tablero = tamano_tablero;
+    }
+
+    public Integer getEn_linea() {
+        return en_linea;
+    }
+
+    public void setEn_linea(Integer en_linea) {
+        this.en_linea = en_linea;
+    }
 }
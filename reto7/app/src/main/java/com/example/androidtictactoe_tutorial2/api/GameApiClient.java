@@ -7,13 +7,22 @@ import com.google.gson.reflect.TypeToken;
 
 import java.io.IOException;
 import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
+import okhttp3.Call;
+import okhttp3.ConnectionPool;
 import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
 import okhttp3.Request;
 import okhttp3.RequestBody;
 import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
 
 /**
  * Cliente para interactuar con la API REST del servidor de Triqui Online
@@ -21,28 +30,89 @@ import okhttp3.Response;
 public class GameApiClient {
     private static final String TAG = "GameApiClient";
     private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+    // Margen sobre la espera pedida al servidor antes de dar por perdida una consulta larga
+    private static final long LONG_POLL_GRACE_MS = 10000;
 
+    // Conexiones inactivas que se conservan y cuánto tiempo; cubren las consultas, el socket de
+    // eventos y los cambios de servidor sin volver a abrir conexiones
+    private static final int MAX_IDLE_CONNECTIONS = 4;
+    private static final long KEEP_ALIVE_MINUTES = 5;
+
+    private static final ConnectionMetrics connectionMetrics = new ConnectionMetrics();
+    private static OkHttpClient sharedClient;
+
+    private final Object longPollTag = new Object();
     private final OkHttpClient client;
+    // Para los WebSocket y las consultas largas: sin límite de lectura (un juego puede estar
+    // quieto mucho tiempo) y con un ping periódico que mantiene vivo el socket con un tráfico mínimo
+    private final OkHttpClient longLivedClient;
     private final Gson gson;
     private final String baseUrl;
+    // ETag y última respuesta de cada recurso consultado con GET, para volver a pedirlo condicionalmente
+    private final Map<String, CachedResponse> conditionalCache = new ConcurrentHashMap<>();
 
     public GameApiClient(String serverIp, int serverPort) {
-        this.baseUrl = "http://" + serverIp + ":" + serverPort + "/api/v1";
+        this.baseUrl = baseUrl(serverIp, serverPort);
 
-        this.client = new OkHttpClient.Builder()
-                .connectTimeout(10, TimeUnit.SECONDS)
-                .readTimeout(10, TimeUnit.SECONDS)
-                .writeTimeout(10, TimeUnit.SECONDS)
+        // El cliente compartido, y uno derivado de él que usa su mismo pool de conexiones e hilos
+        this.client = sharedClient();
+        this.longLivedClient = client.newBuilder()
+                .readTimeout(0, TimeUnit.MILLISECONDS)
+                .pingInterval(30, TimeUnit.SECONDS)
                 .build();
 
         this.gson = new Gson();
     }
 
+    /**
+     * Cliente HTTP único del proceso, compartido por los clientes de todos los servidores
+     * configurados: las conexiones abiertas (HTTP/2 cuando el servidor lo negocia sobre TLS)
+     * sobreviven a un cambio de configuración.
+     */
+    private static synchronized OkHttpClient sharedClient() {
+        if (sharedClient == null) {
+            sharedClient = new OkHttpClient.Builder()
+                    .connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_MINUTES, TimeUnit.MINUTES))
+                    .protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                    .eventListener(connectionMetrics)
+                    .connectTimeout(10, TimeUnit.SECONDS)
+                    .readTimeout(10, TimeUnit.SECONDS)
+                    .writeTimeout(10, TimeUnit.SECONDS)
+                    .build();
+        }
+        return sharedClient;
+    }
+
+    /**
+     * Peticiones hechas por todos los clientes y cuántas reutilizaron una conexión abierta
+     */
+    public static ConnectionMetrics getConnectionMetrics() {
+        return connectionMetrics;
+    }
+
+    static String baseUrl(String serverIp, int serverPort) {
+        return "http://" + serverIp + ":" + serverPort + "/api/v1";
+    }
+
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
     /**
      * Crea un nuevo juego
      */
     public CreateGameResponse createGame(String playerId) throws IOException {
-        CreateGameRequest request = new CreateGameRequest(playerId);
+        return createGame(new CreateGameRequest(playerId));
+    }
+
+    /**
+     * Crea un nuevo juego en un tablero N x N con K en línea
+     */
+    public CreateGameResponse createGame(String playerId, int boardSize, int winLength) throws IOException {
+        return createGame(new CreateGameRequest(playerId, boardSize, winLength));
+    }
+
+    private CreateGameResponse createGame(CreateGameRequest request) throws IOException {
         String jsonRequest = gson.toJson(request);
 
         Request httpRequest = new Request.Builder()
@@ -65,27 +135,12 @@ public class GameApiClient {
     }
 
     /**
-     * Obtiene la lista de juegos disponibles
+     * Obtiene la lista de juegos disponibles; si no cambió desde la última consulta, el servidor
+     * no la vuelve a enviar y el resultado lo indica con {@link ConditionalResponse#isNotModified()}
      */
-    public AvailableGamesResponse getAvailableGames() throws IOException {
-        Request request = new Request.Builder()
-                .url(baseUrl + "/games/available")
-                .get()
-                .build();
-
-        try (Response response = client.newCall(request).execute()) {
-            String responseBody = response.body().string();
-            Log.d(TAG, "Available games response: " + responseBody);
-
-            if (response.isSuccessful()) {
-                Type responseType = new TypeToken<AvailableGamesResponse>(){}.getType();
-                return gson.fromJson(responseBody, responseType);
-            } else {
-                AvailableGamesResponse errorResponse = new AvailableGamesResponse();
-                errorResponse.setDetail("Error: " + response.code() + " - " + responseBody);
-                return errorResponse;
-            }
-        }
+    public ConditionalResponse<AvailableGamesResponse> getAvailableGames() throws IOException {
+        return getConditional(baseUrl + "/games/available", AvailableGamesResponse.class,
+                AvailableGamesResponse::new, "Available games");
     }
 
     /**
@@ -142,21 +197,87 @@ public class GameApiClient {
     }
 
     /**
-     * Obtiene el estado actual del juego
+     * GET condicional: envía en If-None-Match el ETag de la última respuesta del recurso. Con un 304
+     * no lee ni interpreta el cuerpo y devuelve esa misma respuesta, sin tocarla, marcada como no
+     * modificada en el {@link ConditionalResponse}.
      */
-    public GameStateResponse getGameState(String gameId) throws IOException {
-        Request request = new Request.Builder()
-                .url(baseUrl + "/games/" + gameId)
-                .get()
-                .build();
+    private <T extends ApiResponse> ConditionalResponse<T> getConditional(String url, Class<T> type, Supplier<T> errorResponses,
+                                                     String name) throws IOException {
+        CachedResponse cached = conditionalCache.get(url);
+        Request.Builder request = new Request.Builder()
+                .url(url)
+                .get();
+        if (cached != null) {
+            request.header("If-None-Match", cached.etag);
+        }
 
-        try (Response response = client.newCall(request).execute()) {
+        try (Response response = client.newCall(request.build()).execute()) {
+            if (response.code() == 304 && cached != null && type.isInstance(cached.response)) {
+                Log.d(TAG, name + " not modified");
+                return new ConditionalResponse<>(type.cast(cached.response), true);
+            }
             String responseBody = response.body().string();
-            Log.d(TAG, "Game state response: " + responseBody);
+            Log.d(TAG, name + " response: " + responseBody);
 
             if (response.isSuccessful()) {
-                Type responseType = new TypeToken<GameStateResponse>(){}.getType();
-                return gson.fromJson(responseBody, responseType);
+                T result = gson.fromJson(responseBody, type);
+                String etag = response.header("ETag");
+                if (etag != null && result != null) {
+                    conditionalCache.put(url, new CachedResponse(etag, result));
+                } else {
+                    conditionalCache.remove(url);
+                }
+                return new ConditionalResponse<>(result, false);
+            } else {
+                T errorResponse = errorResponses.get();
+                errorResponse.setDetail("Error: " + response.code() + " - " + responseBody);
+                return new ConditionalResponse<>(errorResponse, false);
+            }
+        }
+    }
+
+    private static final class CachedResponse {
+        final String etag;
+        final ApiResponse response;
+
+        CachedResponse(String etag, ApiResponse response) {
+            this.etag = etag;
+            this.response = response;
+        }
+    }
+
+    /**
+     * Espera a que el estado del juego cambie respecto a {@code knownVersion} (long polling): el
+     * servidor responde en cuanto hay un estado más nuevo, o tras {@code timeoutMs} sin cambios.
+     * Devuelve null si no hubo cambios; con {@code knownVersion} negativo responde de inmediato.
+     * {@code knownEtag} (el {@link GameStateResponse#getEtag()} del estado que ya se tiene, o null)
+     * va en If-None-Match, así un servidor sin versiones también puede contestar 304 sin cuerpo.
+     */
+    public GameStateResponse getGameState(String gameId, long knownVersion, String knownEtag,
+                                          long timeoutMs) throws IOException {
+        Request.Builder request = new Request.Builder()
+                .url(baseUrl + "/games/" + gameId + "?version=" + knownVersion + "&espera=" + timeoutMs / 1000)
+                .tag(longPollTag)
+                .get();
+        if (knownEtag != null) {
+            request.header("If-None-Match", knownEtag);
+        }
+
+        Call call = longLivedClient.newCall(request.build());
+        call.timeout().timeout(timeoutMs + LONG_POLL_GRACE_MS, TimeUnit.MILLISECONDS);
+        try (Response response = call.execute()) {
+            if (response.code() == 304 || response.code() == 204) {
+                return null;
+            }
+            String responseBody = response.body().string();
+            Log.d(TAG, "Game state (v" + knownVersion + ") response: " + responseBody);
+
+            if (response.isSuccessful()) {
+                GameStateResponse state = gson.fromJson(responseBody, GameStateResponse.class);
+                if (state != null) {
+                    state.setEtag(response.header("ETag"));
+                }
+                return state;
             } else {
                 GameStateResponse errorResponse = new GameStateResponse();
                 errorResponse.setDetail("Error: " + response.code() + " - " + responseBody);
@@ -165,6 +286,36 @@ public class GameApiClient {
         }
     }
 
+    /**
+     * Interrumpe las consultas largas en curso, que terminan con una IOException
+     */
+    public void cancelLongPolls() {
+        for (Call call : longLivedClient.dispatcher().runningCalls()) {
+            if (call.request().tag() == longPollTag) {
+                call.cancel();
+            }
+        }
+    }
+
+    /**
+     * Abre la suscripción por WebSocket a los eventos de un juego. El servidor envía las jugadas
+     * posteriores a {@code sinceSequence}; con 0, o si ya no las tiene, empieza por el estado
+     * completo.
+     */
+    public WebSocket openGameEvents(String gameId, long sinceSequence, WebSocketListener listener) {
+        Request request = new Request.Builder()
+                .url(baseUrl + "/games/" + gameId + "/events?desde=" + sinceSequence)
+                .build();
+        return longLivedClient.newWebSocket(request, listener);
+    }
+
+    /**
+     * Interpreta un mensaje recibido por el WebSocket de eventos
+     */
+    public GameEvent parseGameEvent(String json) {
+        return gson.fromJson(json, GameEvent.class);
+    }
+
     /**
      * Verifica que el servidor esté funcionando (health check)
      */
@@ -0,0 +1,78 @@
+package com.example.androidtictactoe_tutorial2.api;
+
+/**
+ * Evento de un juego recibido por WebSocket. Cada evento lleva un número de secuencia
+ * creciente por juego, con el que el cliente pide al reconectar solo lo que se perdió.
+ */
+public class GameEvent {
+    /** Una jugada: posición, jugador, turno siguiente y resultado si la jugada terminó el juego */
+    public static final String TYPE_MOVE = "movimiento";
+    /** El estado completo del juego, al suscribirse o cuando el servidor no puede reanudar */
+    public static final String TYPE_STATE = "estado";
+
+    private long secuencia;
+    private String tipo;
+    private Integer posicion;
+    private String jugador;
+    private String turno_siguiente;
+    private String resultado_final;
+    private GameStateResponse juego;
+
+    public GameEvent() {}
+
+    public long getSecuencia() {
+        return secuencia;
+    }
+
+    public void setSecuencia(long secuencia) {
+        this.secuencia = secuencia;
+    }
+
+    public String getTipo() {
+        return tipo;
+    }
+
+    public void setTipo(String tipo) {
+        this.tipo = tipo;
+    }
+
+    public Integer getPosicion() {
+        return posicion;
+    }
+
+    public void setPosicion(Integer posicion) {
+        this.posicion = posicion;
+    }
+
+    public String getJugador() {
+        return jugador;
+    }
+
+    public void setJugador(String jugador) {
+        this.jugador = jugador;
+    }
+
+    public String getTurno_siguiente() {
+        return turno_siguiente;
+    }
+
+    public void setTurno_siguiente(String turno_siguiente) {
+        this.turno_siguiente = turno_siguiente;
+    }
+
+    public String getResultado_final() {
+        return resultado_final;
+    }
+
+    public void setResultado_final(String resultado_final) {
+        this.resultado_final = resultado_final;
+    }
+
+    public GameStateResponse getJuego() {
+        return juego;
+    }
+
+    public void setJuego(GameStateResponse juego) {
+        this.juego = juego;
+    }
+}
@@ -0,0 +1,194 @@
+package com.example.androidtictactoe_tutorial2.api;
+
+import android.util.Log;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+
+/**
+ * Suscripción por WebSocket a los eventos de un juego.
+ *
+ * Entrega cada evento una sola vez y en orden: recuerda la última secuencia recibida y, si la
+ * conexión se cae, reconecta pidiendo los eventos posteriores a ella. Si el socket no se puede
+ * establecer (el servidor no lo ofrece o la red lo bloquea), al empezar o tras haber funcionado,
+ * avisa con {@link Listener#onUnavailable()} para que se consulte el estado por HTTP.
+ */
+public class GameEventStream {
+    private static final String TAG = "GameEventStream";
+
+    // Intentos seguidos sin llegar a abrir el socket (desde la última vez que se abrió) antes de
+    // darlo por no disponible
+    private static final int MAX_FAILED_CONNECTS = 3;
+    private static final long RECONNECT_MIN_MS = 500;
+    private static final long RECONNECT_MAX_MS = 15000;
+    private static final int NORMAL_CLOSURE = 1000;
+
+    public interface Listener {
+        /** Llamado en un hilo de red, nunca dos veces con la misma secuencia */
+        void onEvent(GameEvent event);
+
+        /** El socket se abrió (también tras reconectar) */
+        void onConnected();
+
+        /** No se pudo establecer el socket; el stream queda detenido */
+        void onUnavailable();
+    }
+
+    private final GameApiClient apiClient;
+    private final String gameId;
+    private final Listener listener;
+    private final ScheduledExecutorService reconnector = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "game-events-reconnect");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Todo lo siguiente se protege con this
+    private WebSocket socket;
+    private boolean running;
+    private long lastSequence;
+    // Si el socket actual llegó a abrirse: su cierre es una caída, no un intento fallido
+    private boolean socketOpened;
+    private int failedConnects;
+    private long reconnectDelayMs = RECONNECT_MIN_MS;
+
+    public GameEventStream(GameApiClient apiClient, String gameId, Listener listener) {
+        this.apiClient = apiClient;
+        this.gameId = gameId;
+        this.listener = listener;
+    }
+
+    /**
+     * Se suscribe (o reanuda la suscripción) desde la última secuencia recibida
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        failedConnects = 0;
+        reconnectDelayMs = RECONNECT_MIN_MS;
+        connect();
+    }
+
+    /**
+     * Cierra el socket; un {@link #start()} posterior reanuda donde se quedó
+     */
+    public synchronized void stop() {
+        running = false;
+        if (socket != null) {
+            socket.close(NORMAL_CLOSURE, null);
+            socket = null;
+        }
+    }
+
+    /**
+     * Detiene el stream para siempre
+     */
+    public void release() {
+        stop();
+        reconnector.shutdownNow();
+    }
+
+    public synchronized long getLastSequence() {
+        return lastSequence;
+    }
+
+    private synchronized void connect() {
+        if (!running) {
+            return;
+        }
+        Log.d(TAG, "Subscribing to " + gameId + " after event " + lastSequence);
+        socketOpened = false;
+        socket = apiClient.openGameEvents(gameId, lastSequence, new SocketListener());
+    }
+
+    /**
+     * Programa otra conexión con espera exponencial, o se rinde si el socket no se ha vuelto a
+     * abrir en los últimos intentos
+     */
+    private synchronized void onDisconnected(WebSocket closed, boolean unsupported) {
+        if (!running || closed != socket) {
+            return;
+        }
+        socket = null;
+        if (unsupported || (!socketOpened && ++failedConnects >= MAX_FAILED_CONNECTS)) {
+            running = false;
+            listener.onUnavailable();
+            return;
+        }
+        long delay = reconnectDelayMs;
+        reconnectDelayMs = Math.min(RECONNECT_MAX_MS, 2 * reconnectDelayMs);
+        reconnector.schedule(this::connect, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private class SocketListener extends WebSocketListener {
+        @Override
+        public void onOpen(WebSocket webSocket, Response response) {
+            synchronized (GameEventStream.this) {
+                if (webSocket != socket) {
+                    return;
+                }
+                socketOpened = true;
+                failedConnects = 0;
+                reconnectDelayMs = RECONNECT_MIN_MS;
+            }
+            listener.onConnected();
+        }
+
+        @Override
+        public void onMessage(WebSocket webSocket, String text) {
+            GameEvent event;
+            try {
+                event = apiClient.parseGameEvent(text);
+            } catch (RuntimeException e) {
+                Log.w(TAG, "Ignoring malformed event: " + text, e);
+                return;
+            }
+            synchronized (GameEventStream.this) {
+                if (webSocket != socket || event == null) {
+                    return;
+                }
+                // Un estado completo sustituye a todo lo anterior; una jugada repetida se descarta
+                if (!GameEvent.TYPE_STATE.equals(event.getTipo())) {
+                    if (event.getSecuencia() <= lastSequence) {
+                        return;
+                    }
+                    if (lastSequence > 0 && event.getSecuencia() > lastSequence + 1) {
+                        // Faltan eventos: se vuelve a pedir desde el último recibido
+                        Log.w(TAG, "Missed events " + (lastSequence + 1) + ".." + (event.getSecuencia() - 1));
+                        webSocket.close(NORMAL_CLOSURE, null);
+                        onDisconnected(webSocket, false);
+                        return;
+                    }
+                }
+                lastSequence = event.getSecuencia();
+            }
+            listener.onEvent(event);
+        }
+
+        @Override
+        public void onClosing(WebSocket webSocket, int code, String reason) {
+            webSocket.close(NORMAL_CLOSURE, null);
+        }
+
+        @Override
+        public void onClosed(WebSocket webSocket, int code, String reason) {
+            onDisconnected(webSocket, false);
+        }
+
+        @Override
+        public void onFailure(WebSocket webSocket, Throwable t, Response response) {
+            // Una respuesta HTTP en lugar del cambio de protocolo: el servidor no ofrece el socket
+            boolean unsupported = response != null && response.code() != 101;
+            Log.d(TAG, "Event socket failed: " + t.getMessage()
+                    + (response != null ? " (code: " + response.code() + ")" : ""));
+            onDisconnected(webSocket, unsupported);
+        }
+    }
+}
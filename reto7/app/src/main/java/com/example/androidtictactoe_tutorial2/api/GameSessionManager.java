@@ -30,16 +30,18 @@ public class GameSessionManager {
     private GameSessionManager(Context context) {
         preferences = context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
 
-        // Inicializar valores por defecto si no existen
+        // Inicializar valores por defecto si no existen (getServerIp/Port ya los devuelven)
+        SharedPreferences.Editor editor = preferences.edit();
         if (!preferences.contains(KEY_SERVER_IP)) {
-            setServerIp(DEFAULT_SERVER_IP);
+            editor.putString(KEY_SERVER_IP, DEFAULT_SERVER_IP);
         }
         if (!preferences.contains(KEY_SERVER_PORT)) {
-            setServerPort(DEFAULT_SERVER_PORT);
+            editor.putInt(KEY_SERVER_PORT, DEFAULT_SERVER_PORT);
         }
         if (!preferences.contains(KEY_PLAYER_ID)) {
-            setPlayerId(UUID.randomUUID().toString());
+            editor.putString(KEY_PLAYER_ID, UUID.randomUUID().toString());
         }
+        editor.apply();
 
         // Crear el cliente API con la configuración actual
         updateApiClient();
@@ -53,11 +55,15 @@ public class GameSessionManager {
     }
 
     /**
-     * Actualiza el cliente API con la configuración actual del servidor
+     * Actualiza el cliente API con la configuración actual del servidor. Solo se crea uno nuevo
+     * si el servidor cambió; todos comparten las conexiones del mismo OkHttpClient.
      */
     private void updateApiClient() {
         String serverIp = getServerIp();
         int serverPort = getServerPort();
+        if (apiClient != null && apiClient.getBaseUrl().equals(GameApiClient.baseUrl(serverIp, serverPort))) {
+            return;
+        }
         apiClient = new GameApiClient(serverIp, serverPort);
     }
 
@@ -81,6 +87,17 @@ public class GameSessionManager {
         updateApiClient();
     }
 
+    /**
+     * Cambia la dirección y el puerto a la vez, con un solo cliente API nuevo
+     */
+    public void setServer(String serverIp, int serverPort) {
+        preferences.edit()
+                .putString(KEY_SERVER_IP, serverIp)
+                .putInt(KEY_SERVER_PORT, serverPort)
+                .apply();
+        updateApiClient();
+    }
+
     // Getters y setters para información del jugador
 
     public String getPlayerId() {
@@ -131,8 +148,7 @@ public class GameSessionManager {
      * Reinicia la configuración a valores por defecto
      */
     public void resetToDefaults() {
-        setServerIp(DEFAULT_SERVER_IP);
-        setServerPort(DEFAULT_SERVER_PORT);
+        setServer(DEFAULT_SERVER_IP, DEFAULT_SERVER_PORT);
         generateNewPlayerId();
         setPlayerName("Jugador");
     }
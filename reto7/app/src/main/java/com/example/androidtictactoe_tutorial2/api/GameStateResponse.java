@@ -10,10 +10,16 @@ public class GameStateResponse extends ApiResponse {
     private String game_id;
     private String estado;
     private List<String> tablero;
+    private Integer tamano_tablero;
+    private Integer en_linea;
     private String turno_actual;
     private Map<String, String> jugadores;
     private String resultado;
     private String fecha_creacion;
+    // Crece con cada cambio del estado; permite esperar al siguiente (long polling)
+    private Long version;
+    // No viene en el cuerpo: cabecera ETag de la respuesta, para pedir el estado condicionalmente
+    private transient String etag;
 
     public GameStateResponse() {}
 
@@ -41,6 +47,22 @@ public class GameStateResponse extends ApiResponse {
         this.tablero = tablero;
     }
 
+    public Integer getTamano_tablero() {
+        return tamano_tablero;
+    }
+
+    public void setTamano_tablero(Integer tamano_tablero) {
+        this.tamano_tablero = tamano_tablero;
+    }
+
+    public Integer getEn_linea() {
+        return en_linea;
+    }
+
+    public void setEn_linea(Integer en_linea) {
+        this.en_linea = en_linea;
+    }
+
     public String getTurno_actual() {
         return turno_actual;
     }
@@ -72,4 +94,20 @@ public class GameStateResponse extends ApiResponse {
     public void setFecha_creacion(String fecha_creacion) {
         this.fecha_creacion = fecha_creacion;
     }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+
+    public void setEtag(String etag) {
+        this.etag = etag;
+    }
 }
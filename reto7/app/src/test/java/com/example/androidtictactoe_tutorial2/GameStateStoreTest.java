@@ -0,0 +1,73 @@
+package com.example.androidtictactoe_tutorial2;
+
+import com.example.androidtictactoe_tutorial2.game.GameBoard;
+import com.example.androidtictactoe_tutorial2.game.MoveHistory;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * A saved game decodes to the same snapshot, and replaying its moves rebuilds the board
+ * the way MainActivity.restoreMoves does, on a classic board and on one with cells above 127.
+ */
+public class GameStateStoreTest {
+    @Test
+    public void classicGameSurvivesSaveAndRestore() throws IOException {
+        checkSaveAndRestore(3, 3, GameBoard.X);
+    }
+
+    @Test
+    public void largeBoardGameSurvivesSaveAndRestore() throws IOException {
+        checkSaveAndRestore(15, 5, GameBoard.O);
+    }
+
+    @Test(expected = IOException.class)
+    public void damagedBlobIsRejected() throws IOException {
+        byte[] blob = GameStateStore.encode(new GameStateStore.Snapshot(3, 3, "VS_COMPUTER", 1L,
+                GameBoard.X, new byte[] {4, 0}));
+        blob[blob.length - 10] ^= 1; // a move byte, covered by the CRC
+        GameStateStore.decode(blob);
+    }
+
+    private static void checkSaveAndRestore(int size, int winLength, int firstPlayer) throws IOException {
+        Random random = new Random(size);
+        GameBoard board = new GameBoard(size, winLength);
+        board.setTurn(firstPlayer);
+        MoveHistory moves = new MoveHistory(board.cellCount(), firstPlayer);
+        // Thirty random moves on the big board reach cells above 127
+        while (moves.size() < Math.min(30, board.cellCount() - 1) && !board.lastMoveWon()) {
+            int cell = board.randomEmptyCell(random);
+            board.play(cell);
+            moves.push(cell);
+        }
+
+        GameStateStore.Snapshot saved = new GameStateStore.Snapshot(size, winLength, "TWO_PLAYERS",
+                123456789L, firstPlayer, moves.encode());
+        GameStateStore.Snapshot restored = GameStateStore.decode(GameStateStore.encode(saved));
+        assertEquals(size, restored.boardSize);
+        assertEquals(winLength, restored.winLength);
+        assertEquals("TWO_PLAYERS", restored.gameMode);
+        assertEquals(123456789L, restored.gameStartMillis);
+        assertEquals(firstPlayer, restored.firstPlayer);
+        assertArrayEquals(saved.moves, restored.moves);
+
+        GameBoard replayed = new GameBoard(restored.boardSize, restored.winLength);
+        MoveHistory history = MoveHistory.wrap(restored.moves, restored.moves.length, replayed.cellCount(),
+                restored.firstPlayer);
+        replayed.setTurn(restored.firstPlayer);
+        while (history.canRedo()) {
+            history.redo(replayed);
+        }
+        byte[] expected = new byte[board.cellCount()];
+        byte[] actual = new byte[replayed.cellCount()];
+        board.copyCells(expected);
+        replayed.copyCells(actual);
+        assertTrue(Arrays.toString(actual), Arrays.equals(expected, actual));
+        assertEquals(board.sideToMove(), replayed.sideToMove());
+    }
+}
@@ -0,0 +1,38 @@
+plugins {
+    `java-library`
+    alias(libs.plugins.jmh)
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+// Sources have Spanish comments; do not depend on the platform encoding
+tasks.withType<JavaCompile>().configureEach {
+    options.encoding = "UTF-8"
+}
+
+// ./gradlew :engine:test  (correctness tests on a plain JVM, no device or emulator)
+dependencies {
+    testImplementation(libs.junit)
+}
+
+// ./gradlew :engine:jmh  (results in engine/build/results/jmh/results.json)
+jmh {
+    jmhVersion = libs.versions.jmh.get()
+    // Allocation rate per benchmark: gc.alloc.rate.norm is bytes allocated per operation
+    profilers = listOf("gc")
+    fork = 1
+    warmupIterations = 3
+    iterations = 5
+    resultFormat = "JSON"
+}
+
+// ./gradlew :engine:selfPlay --args="--games 1000000 --levels Easy,Harder,Expert"
+tasks.register<JavaExec>("selfPlay") {
+    group = "verification"
+    description = "Plays the difficulty levels against each other and reports results and speed."
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass = "com.example.androidtictactoe_tutorial2.game.SelfPlayTournament"
+}
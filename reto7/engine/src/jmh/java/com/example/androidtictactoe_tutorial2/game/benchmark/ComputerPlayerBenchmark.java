@@ -0,0 +1,58 @@
+package com.example.androidtictactoe_tutorial2.game.benchmark;
+
+import com.example.androidtictactoe_tutorial2.game.ComputerPlayer;
+import com.example.androidtictactoe_tutorial2.game.DifficultyLevel;
+import com.example.androidtictactoe_tutorial2.game.GameBoard;
+import com.example.androidtictactoe_tutorial2.game.NegamaxSearch;
+import com.example.androidtictactoe_tutorial2.game.PerfectPlayTable;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tiempo de {@link ComputerPlayer#getBestMove} por nivel y tamaño de tablero. En tableros
+ * grandes Harder, Expert y Master agotan su tiempo, así que ahí lo que interesa es que no
+ * se pasen; en 3x3 mide el coste real de cada motor.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ComputerPlayerBenchmark {
+
+    @Param({"Easy", "Harder", "Expert", "Master"})
+    public DifficultyLevel level;
+
+    @Param({"3", "7", "15"})
+    public int boardSize;
+
+    private ComputerPlayer mPlayer;
+    private GameBoard mPosition;
+    private GameBoard mBoard;
+
+    @Setup
+    public void setUp() {
+        mPlayer = new ComputerPlayer(PerfectPlayTable.solve(), Runtime.getRuntime().availableProcessors());
+        mPosition = Positions.midGame(boardSize, Positions.winLength(boardSize), boardSize == 3 ? 2 : 6, 3);
+        mBoard = new GameBoard(mPosition);
+    }
+
+    @TearDown
+    public void tearDown() {
+        mPlayer.shutdown();
+    }
+
+    @Benchmark
+    public int getBestMove() {
+        mBoard.copyFrom(mPosition);
+        return mPlayer.getBestMove(mBoard, mBoard.sideToMove(), level, NegamaxSearch.NO_DEADLINE);
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.androidtictactoe_tutorial2.game.benchmark;
+
+import com.example.androidtictactoe_tutorial2.game.GameBoard;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generación y orden de jugadas, jugada al azar, evaluación heurística y clave canónica
+ * a mitad de partida
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MoveGenerationBenchmark {
+
+    @Param({"3", "7", "15"})
+    public int boardSize;
+
+    private GameBoard mBoard;
+    private int[] mMoves;
+
+    @Setup
+    public void setUp() {
+        mBoard = Positions.midGame(boardSize, Positions.winLength(boardSize), boardSize * 2, 7);
+        mMoves = new int[mBoard.cellCount()];
+    }
+
+    @Benchmark
+    public int orderMoves() {
+        return mBoard.orderMoves(mMoves);
+    }
+
+    @Benchmark
+    public int randomEmptyCell() {
+        return mBoard.randomEmptyCell(ThreadLocalRandom.current());
+    }
+
+    @Benchmark
+    public int evaluate() {
+        return mBoard.evaluate();
+    }
+
+    @Benchmark
+    public long canonicalKey() {
+        return mBoard.canonicalKey();
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.androidtictactoe_tutorial2.game.benchmark;
+
+import com.example.androidtictactoe_tutorial2.game.GameBoard;
+
+import java.util.Random;
+
+/**
+ * Posiciones reproducibles para los benchmarks
+ */
+final class Positions {
+
+    private Positions() {
+    }
+
+    /**
+     * Tablero a mitad de partida: {@code moves} jugadas al azar entre las que propone el motor,
+     * sin que ninguna complete una línea. Con la misma semilla sale siempre la misma posición.
+     */
+    static GameBoard midGame(int size, int winLength, int moves, long seed) {
+        Random random = new Random(seed);
+        GameBoard board = new GameBoard(size, winLength);
+        int[] candidates = new int[board.cellCount()];
+        int played = 0;
+        int attempts = 0;
+        while (played < moves && attempts++ < 100 * board.cellCount()) {
+            int count = board.orderMoves(candidates);
+            if (count == 0) {
+                break;
+            }
+            int move = candidates[random.nextInt(count)];
+            board.play(move);
+            if (board.lastMoveWon() || board.isFull()) {
+                board.undo(move);
+            } else {
+                played++;
+            }
+        }
+        return board;
+    }
+
+    static int winLength(int size) {
+        return size == 3 ? 3 : Math.min(size, 5);
+    }
+}
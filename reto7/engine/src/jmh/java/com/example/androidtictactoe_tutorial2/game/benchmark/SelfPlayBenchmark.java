@@ -0,0 +1,73 @@
+package com.example.androidtictactoe_tutorial2.game.benchmark;
+
+import com.example.androidtictactoe_tutorial2.game.ComputerPlayer;
+import com.example.androidtictactoe_tutorial2.game.DifficultyLevel;
+import com.example.androidtictactoe_tutorial2.game.GameBoard;
+import com.example.androidtictactoe_tutorial2.game.NegamaxSearch;
+import com.example.androidtictactoe_tutorial2.game.PerfectPlayTable;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Partidas completas por segundo, la máquina contra sí misma. En 3x3 juegan los niveles
+ * sin límite de tiempo; en tableros grandes, Easy, que mide el coste de las reglas.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class SelfPlayBenchmark {
+
+    private ComputerPlayer mPlayer;
+    private GameBoard mClassicBoard;
+    private GameBoard mLargeBoard;
+
+    @Setup
+    public void setUp() {
+        mPlayer = new ComputerPlayer(PerfectPlayTable.solve(), 1);
+        mClassicBoard = new GameBoard(3, 3);
+        mLargeBoard = new GameBoard(15, 5);
+    }
+
+    @TearDown
+    public void tearDown() {
+        mPlayer.shutdown();
+    }
+
+    /**
+     * Niveles que no juegan contra el reloj en 3x3
+     */
+    @State(Scope.Thread)
+    public static class ClassicLevel {
+        @Param({"Easy", "Harder", "Expert"})
+        public DifficultyLevel level;
+    }
+
+    @Benchmark
+    public int classicGame(ClassicLevel classic) {
+        return playGame(mClassicBoard, classic.level);
+    }
+
+    @Benchmark
+    public int largeBoardRandomGame() {
+        return playGame(mLargeBoard, DifficultyLevel.Easy);
+    }
+
+    private int playGame(GameBoard board, DifficultyLevel level) {
+        board.clear();
+        while (!board.lastMoveWon() && !board.isFull()) {
+            int player = board.sideToMove();
+            board.play(mPlayer.getBestMove(board, player, level, NegamaxSearch.NO_DEADLINE));
+        }
+        return board.winner();
+    }
+}
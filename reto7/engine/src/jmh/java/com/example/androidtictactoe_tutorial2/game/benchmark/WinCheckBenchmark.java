@@ -0,0 +1,83 @@
+package com.example.androidtictactoe_tutorial2.game.benchmark;
+
+import com.example.androidtictactoe_tutorial2.game.BitBoard;
+import com.example.androidtictactoe_tutorial2.game.GameBoard;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Detección de victoria: máscaras del 3x3 y jugada + comprobación incremental + deshacer
+ * en tableros N×N.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class WinCheckBenchmark {
+    private static final int POSITIONS = 64;
+
+    private int[] mMasks;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        mMasks = new int[POSITIONS];
+        for (int i = 0; i < POSITIONS; i++) {
+            mMasks[i] = random.nextInt(BitBoard.FULL_MASK + 1);
+        }
+    }
+
+    /**
+     * Posición a mitad de partida y sus jugadas candidatas, por tamaño de tablero
+     */
+    @State(Scope.Thread)
+    public static class MidGame {
+        @Param({"3", "7", "15"})
+        public int boardSize;
+
+        GameBoard board;
+        int[] moves;
+        int moveCount;
+
+        @Setup
+        public void setUp() {
+            board = Positions.midGame(boardSize, Positions.winLength(boardSize), boardSize * 2, 42);
+            moves = new int[board.cellCount()];
+            moveCount = board.orderMoves(moves);
+        }
+    }
+
+    /**
+     * 64 comprobaciones de línea sobre máscaras de bits (solo depende del 3x3)
+     */
+    @Benchmark
+    public void bitBoardIsWin(Blackhole blackhole) {
+        for (int mask : mMasks) {
+            blackhole.consume(BitBoard.isWin(mask));
+        }
+    }
+
+    /**
+     * Cada jugada candidata: colocar, comprobar las líneas que pasan por ella y deshacer
+     */
+    @Benchmark
+    public void gameBoardPlayAndCheck(MidGame position, Blackhole blackhole) {
+        GameBoard board = position.board;
+        for (int i = 0; i < position.moveCount; i++) {
+            int move = position.moves[i];
+            board.play(move);
+            blackhole.consume(board.lastMoveWon());
+            board.undo(move);
+        }
+    }
+}
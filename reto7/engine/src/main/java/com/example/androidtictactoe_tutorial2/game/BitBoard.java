@@ -0,0 +1,306 @@
+package com.example.androidtictactoe_tutorial2.game;
+
+/**
+ * Tablero de Triqui 3x3 representado con dos máscaras de 9 bits, una por jugador.
+ * El bit {@code row * 3 + col} de cada máscara indica si el jugador ocupa esa casilla.
+ * Todas las consultas (movimiento, deshacer, victoria, empate, casillas libres) son
+ * operaciones de bits y no crean objetos.
+ *
+ * Como {@link GamePosition} también lleva el turno, para que los motores de búsqueda
+ * puedan jugar y deshacer sin indicar el jugador.
+ */
+public final class BitBoard implements GamePosition {
+    public static final int SIZE = 3;
+    public static final int CELLS = SIZE * SIZE;
+
+    // Valores de casilla / jugadores
+    public static final int EMPTY = 0;
+    public static final int X = 1;
+    public static final int O = 2;
+
+    public static final int FULL_MASK = (1 << CELLS) - 1;
+
+    // Las 8 líneas ganadoras: 3 filas, 3 columnas y 2 diagonales
+    private static final int[] WIN_LINES = {
+            0b000_000_111, 0b000_111_000, 0b111_000_000,
+            0b001_001_001, 0b010_010_010, 0b100_100_100,
+            0b100_010_001, 0b001_010_100
+    };
+
+    // Orden de búsqueda: centro, esquinas, bordes
+    private static final int[] MOVE_ORDER = {4, 0, 2, 6, 8, 1, 3, 5, 7};
+
+    // BASE3[mask] = suma de 3^i para cada bit i encendido en la máscara
+    private static final int[] BASE3 = new int[1 << CELLS];
+
+    // SYMMETRY_MASKS[s][mask] = máscara transformada por la simetría s (4 rotaciones x reflejo)
+    private static final short[][] SYMMETRY_MASKS = new short[8][1 << CELLS];
+    // SYMMETRY_CELLS[s][cell] = casilla a la que la simetría s lleva cell
+    private static final int[][] SYMMETRY_CELLS = new int[8][CELLS];
+
+    static {
+        int[] pow3 = new int[CELLS];
+        pow3[0] = 1;
+        for (int i = 1; i < CELLS; i++) {
+            pow3[i] = pow3[i - 1] * 3;
+        }
+        for (int mask = 1; mask < BASE3.length; mask++) {
+            int low = Integer.numberOfTrailingZeros(mask);
+            BASE3[mask] = BASE3[mask & (mask - 1)] + pow3[low];
+        }
+
+        for (int s = 0; s < 8; s++) {
+            int[] map = SYMMETRY_CELLS[s];
+            for (int row = 0; row < SIZE; row++) {
+                for (int col = 0; col < SIZE; col++) {
+                    int r = row;
+                    int c = col;
+                    for (int k = 0; k < (s & 3); k++) {
+                        int t = r;
+                        r = c;
+                        c = SIZE - 1 - t;
+                    }
+                    if (s >= 4) {
+                        c = SIZE - 1 - c;
+                    }
+                    map[cell(row, col)] = cell(r, c);
+                }
+            }
+            for (int mask = 1; mask < (1 << CELLS); mask++) {
+                int low = Integer.numberOfTrailingZeros(mask);
+                SYMMETRY_MASKS[s][mask] = (short) (SYMMETRY_MASKS[s][mask & (mask - 1)] | (1 << map[low]));
+            }
+        }
+    }
+
+    private int mMaskX;
+    private int mMaskO;
+    private int mTurn = X;
+
+    public BitBoard() {
+    }
+
+    public BitBoard(BitBoard other) {
+        copyFrom(other);
+    }
+
+    public static int cell(int row, int col) {
+        return row * SIZE + col;
+    }
+
+    public static int opponent(int player) {
+        return player == X ? O : X;
+    }
+
+    /**
+     * Valor en base 3 de la máscara: suma de 3^i por cada casilla i marcada
+     */
+    static int base3(int mask) {
+        return BASE3[mask];
+    }
+
+    /**
+     * Indica si la máscara contiene alguna de las 8 líneas ganadoras
+     */
+    public static boolean isWin(int mask) {
+        for (int line : WIN_LINES) {
+            if ((mask & line) == line) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Convierte el símbolo usado por la vista y el servidor ("X", "O", "") en valor de casilla
+     */
+    public static int valueOf(String symbol) {
+        if ("X".equals(symbol)) return X;
+        if ("O".equals(symbol)) return O;
+        return EMPTY;
+    }
+
+    public static String symbol(int value) {
+        if (value == X) return "X";
+        if (value == O) return "O";
+        return "";
+    }
+
+    public int get(int cell) {
+        int bit = 1 << cell;
+        if ((mMaskX & bit) != 0) return X;
+        if ((mMaskO & bit) != 0) return O;
+        return EMPTY;
+    }
+
+    public boolean isEmpty(int cell) {
+        return ((mMaskX | mMaskO) & (1 << cell)) == 0;
+    }
+
+    /**
+     * Coloca la ficha del jugador en una casilla libre
+     */
+    public void play(int cell, int player) {
+        if (player == X) {
+            mMaskX |= 1 << cell;
+        } else {
+            mMaskO |= 1 << cell;
+        }
+    }
+
+    /**
+     * Retira la ficha de una casilla sin tocar el turno
+     */
+    public void remove(int cell) {
+        int keep = ~(1 << cell);
+        mMaskX &= keep;
+        mMaskO &= keep;
+    }
+
+    /**
+     * Asigna el valor de una casilla, sobrescribiendo lo que hubiera
+     */
+    public void set(int cell, int value) {
+        remove(cell);
+        if (value == X || value == O) {
+            play(cell, value);
+        }
+    }
+
+    public int mask(int player) {
+        return player == X ? mMaskX : mMaskO;
+    }
+
+    public boolean hasWon(int player) {
+        return isWin(mask(player));
+    }
+
+    /**
+     * Devuelve el ganador (X u O) o EMPTY si nadie ha ganado
+     */
+    public int winner() {
+        if (isWin(mMaskX)) return X;
+        if (isWin(mMaskO)) return O;
+        return EMPTY;
+    }
+
+    public boolean isFull() {
+        return (mMaskX | mMaskO) == FULL_MASK;
+    }
+
+    public boolean isDraw() {
+        return isFull() && winner() == EMPTY;
+    }
+
+    /**
+     * Máscara de casillas libres; cada bit encendido es un movimiento legal
+     */
+    public int legalMoves() {
+        return ~(mMaskX | mMaskO) & FULL_MASK;
+    }
+
+    public int moveCount() {
+        return Integer.bitCount(mMaskX | mMaskO);
+    }
+
+    public void clear() {
+        mMaskX = 0;
+        mMaskO = 0;
+        mTurn = X;
+    }
+
+    public void copyFrom(BitBoard other) {
+        mMaskX = other.mMaskX;
+        mMaskO = other.mMaskO;
+        mTurn = other.mTurn;
+    }
+
+    public void setTurn(int player) {
+        mTurn = player;
+    }
+
+    // GamePosition
+
+    @Override
+    public int cellCount() {
+        return CELLS;
+    }
+
+    @Override
+    public int sideToMove() {
+        return mTurn;
+    }
+
+    @Override
+    public void play(int cell) {
+        play(cell, mTurn);
+        mTurn = opponent(mTurn);
+    }
+
+    @Override
+    public void undo(int cell) {
+        remove(cell);
+        mTurn = opponent(mTurn);
+    }
+
+    @Override
+    public boolean lastMoveWon() {
+        return hasWon(opponent(mTurn));
+    }
+
+    /**
+     * Menor código base 3 (relativo al jugador que mueve) entre las 8 simetrías del tablero
+     */
+    @Override
+    public long canonicalKey() {
+        int mine = mask(mTurn);
+        int theirs = mask(opponent(mTurn));
+        int best = Integer.MAX_VALUE;
+        for (short[] symmetry : SYMMETRY_MASKS) {
+            int code = BASE3[symmetry[mine]] + 2 * BASE3[symmetry[theirs]];
+            if (code < best) {
+                best = code;
+            }
+        }
+        return best;
+    }
+
+    @Override
+    public int canonicalSymmetry() {
+        int mine = mask(mTurn);
+        int theirs = mask(opponent(mTurn));
+        int best = Integer.MAX_VALUE;
+        int symmetry = 0;
+        for (int s = 0; s < 8; s++) {
+            int code = BASE3[SYMMETRY_MASKS[s][mine]] + 2 * BASE3[SYMMETRY_MASKS[s][theirs]];
+            if (code < best) {
+                best = code;
+                symmetry = s;
+            }
+        }
+        return symmetry;
+    }
+
+    @Override
+    public int symmetricCell(int cell, int symmetry) {
+        return SYMMETRY_CELLS[symmetry][cell];
+    }
+
+    @Override
+    public int orderMoves(int[] moves) {
+        int free = legalMoves();
+        int count = 0;
+        for (int cell : MOVE_ORDER) {
+            if ((free & (1 << cell)) != 0) {
+                moves[count++] = cell;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public int evaluate() {
+        // El árbol 3x3 se busca completo; no hace falta heurística
+        return 0;
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.androidtictactoe_tutorial2.game;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Jugador de la máquina: elige la jugada según el nivel de dificultad.
+ *
+ * Easy juega al azar. En 3x3, Harder gana si puede, si no bloquea la victoria del rival y
+ * si tampoco juega al azar, y Expert consulta la tabla de jugadas perfectas; en tableros
+ * mayores ambos profundizan iterativamente dentro del tiempo de su nivel. Master también
+ * consulta la tabla en 3x3, donde el juego está resuelto, y usa MCTS en los demás tableros.
+ *
+ * No es seguro compartir una instancia entre hilos; las búsquedas de MCTS sí reparten
+ * el trabajo entre varios hilos internamente.
+ */
+public final class ComputerPlayer {
+    private final PerfectPlayTable mPerfectPlayTable;
+    private final NegamaxSearch mSearch = new NegamaxSearch(16);
+    private final MonteCarloSearch mMonteCarloSearch;
+    private final BitBoard mClassicBoard = new BitBoard();
+    // Reglas de las posiciones guardadas en la tabla de transposición de mSearch
+    private int mTableSize;
+    private int mTableWinLength;
+
+    // Motor usado en la última jugada; el resumen se arma al pedirlo, fuera del camino caliente
+    private static final int SEARCH_NONE = 0;
+    private static final int SEARCH_RANDOM = 1;
+    private static final int SEARCH_TABLE = 2;
+    private static final int SEARCH_WIN_OR_BLOCK = 3;
+    private static final int SEARCH_ITERATIVE = 4;
+    private static final int SEARCH_MONTE_CARLO = 5;
+    private int mLastSearch = SEARCH_NONE;
+
+    /**
+     * @param parallelism hilos para las partidas aleatorias del nivel Master
+     */
+    public ComputerPlayer(PerfectPlayTable perfectPlayTable, int parallelism) {
+        mPerfectPlayTable = perfectPlayTable;
+        mMonteCarloSearch = new MonteCarloSearch(parallelism);
+    }
+
+    /**
+     * Mejor jugada para {@code player} en {@code board}, o -1 si no quedan jugadas. Deja el
+     * turno del tablero en {@code player}; la posición no cambia. La búsqueda termina como
+     * tarde en {@code deadline} ({@link System#nanoTime()}) o al interrumpir el hilo.
+     */
+    public int getBestMove(GameBoard board, int player, DifficultyLevel level, long deadline) {
+        board.setTurn(player);
+
+        long budgetDeadline = System.nanoTime() + level.getSearchBudgetMs() * 1_000_000L;
+        if (level == DifficultyLevel.Easy) {
+            // Easy: cualquier casilla libre, todas con la misma probabilidad
+            mLastSearch = SEARCH_RANDOM;
+            return board.randomEmptyCell(ThreadLocalRandom.current());
+        } else if (level == DifficultyLevel.Master && !board.isClassic()) {
+            // Master: partidas de Monte Carlo en paralelo hasta el tiempo del nivel
+            return searchMoveMonteCarlo(board, Math.min(deadline, budgetDeadline));
+        } else if (!board.isClassic()) {
+            // Tableros grandes: profundización iterativa dentro del tiempo del nivel
+            return searchMoveTimed(board, Math.min(deadline, budgetDeadline));
+        } else if (level == DifficultyLevel.Harder) {
+            // Harder: gana o bloquea si puede; si no, una jugada al azar
+            mLastSearch = SEARCH_WIN_OR_BLOCK;
+            return winOrBlockMove(board, player);
+        } else {
+            // Expert y Master: juego perfecto, consultado en la tabla del juego resuelto
+            board.copyTo(mClassicBoard);
+            mLastSearch = SEARCH_TABLE;
+            return mPerfectPlayTable.bestMove(mClassicBoard, player);
+        }
+    }
+
+    /**
+     * Casilla con la que {@code player} gana; si no hay, la que le daría la victoria al rival;
+     * si tampoco, una libre al azar. Sin heurística: fuera de esos dos casos todas las casillas
+     * valen lo mismo.
+     */
+    private static int winOrBlockMove(GameBoard board, int player) {
+        int block = -1;
+        int opponent = BitBoard.opponent(player);
+        for (int cell = 0; cell < board.cellCount(); cell++) {
+            if (!board.isEmpty(cell)) {
+                continue;
+            }
+            if (completesLine(board, cell, player)) {
+                return cell;
+            }
+            if (block == -1 && completesLine(board, cell, opponent)) {
+                block = cell;
+            }
+        }
+        return block != -1 ? block : board.randomEmptyCell(ThreadLocalRandom.current());
+    }
+
+    private static boolean completesLine(GameBoard board, int cell, int player) {
+        board.play(cell, player);
+        boolean won = board.hasWon(player);
+        board.remove(cell);
+        return won;
+    }
+
+    private int searchMoveTimed(GameBoard board, long deadline) {
+        if (board.size() != mTableSize || board.winLength() != mTableWinLength) {
+            // Las puntuaciones y jugadas guardadas solo valen para el mismo tablero y K
+            mSearch.clearTable();
+            mTableSize = board.size();
+            mTableWinLength = board.winLength();
+        }
+        mSearch.resetStatistics();
+        mLastSearch = SEARCH_ITERATIVE;
+        return mSearch.searchIterative(board, deadline);
+    }
+
+    private int searchMoveMonteCarlo(GameBoard board, long deadline) {
+        mLastSearch = SEARCH_MONTE_CARLO;
+        return mMonteCarloSearch.search(board, deadline);
+    }
+
+    /**
+     * Resumen legible de la última búsqueda (nodos, profundidad, partidas...), para los logs
+     */
+    public String getLastSearchInfo() {
+        switch (mLastSearch) {
+            case SEARCH_RANDOM:
+                return "Random move";
+            case SEARCH_TABLE:
+                return "Perfect play table";
+            case SEARCH_WIN_OR_BLOCK:
+                return "Win, block or random move";
+            case SEARCH_ITERATIVE:
+                return "Iterative search reached depth " + mSearch.getCompletedDepth() + ": "
+                        + mSearch.getNodeCount() + " nodes, " + mSearch.getNodesPerSecond()
+                        + " nodes/s, cache hit rate " + mSearch.getCacheHitRate();
+            case SEARCH_MONTE_CARLO:
+                return "Monte Carlo search: " + mMonteCarloSearch.getLastPlayouts() + " playouts on "
+                        + mMonteCarloSearch.getParallelism() + " threads, "
+                        + mMonteCarloSearch.getPlayoutsPerSecond() + " playouts/s, value "
+                        + mMonteCarloSearch.getLastValue()
+                        + (mMonteCarloSearch.wasDecidedEarly() ? " (decided early)" : "");
+            default:
+                return "No search yet";
+        }
+    }
+
+    public NegamaxSearch getSearch() {
+        return mSearch;
+    }
+
+    public MonteCarloSearch getMonteCarloSearch() {
+        return mMonteCarloSearch;
+    }
+
+    public void shutdown() {
+        mMonteCarloSearch.shutdown();
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.androidtictactoe_tutorial2.game;
+
+/**
+ * Niveles de dificultad de la máquina, con el tiempo que cada uno puede pensar cuando juega
+ * contra el reloj. Solo se usa en tableros mayores que 3x3 (Harder, Expert y Master); en 3x3
+ * Expert y Master consultan {@link PerfectPlayTable} sin presupuesto de tiempo, Harder gana
+ * o bloquea y Easy juega al azar en cualquier tablero.
+ */
+public enum DifficultyLevel {
+    Easy(0), Harder(50), Expert(200), Master(1000);
+
+    private final long mSearchBudgetMs;
+
+    DifficultyLevel(long searchBudgetMs) {
+        mSearchBudgetMs = searchBudgetMs;
+    }
+
+    public long getSearchBudgetMs() {
+        return mSearchBudgetMs;
+    }
+}
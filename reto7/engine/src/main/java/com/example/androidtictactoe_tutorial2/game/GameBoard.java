@@ -0,0 +1,580 @@
+package com.example.androidtictactoe_tutorial2.game;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Tablero N x N en el que gana quien alinee K fichas (por ejemplo 3x3 con 3, o 15x15 con 5).
+ *
+ * Cada jugada actualiza solo las ventanas de K casillas que pasan por ella, en las 4
+ * direcciones: detectar la victoria, la valoración heurística y las claves de simetría
+ * cuesta O(K) por jugada, sin importar el tamaño del tablero.
+ */
+public final class GameBoard implements GamePosition {
+    public static final int EMPTY = BitBoard.EMPTY;
+    public static final int X = BitBoard.X;
+    public static final int O = BitBoard.O;
+
+    public static final int MIN_SIZE = 3;
+    public static final int MAX_WIN_LENGTH = 8;
+
+    // Direcciones de las líneas: horizontal, vertical, diagonal y antidiagonal
+    private static final int[] DIR_ROW = {0, 1, 1, 1};
+    private static final int[] DIR_COL = {1, 0, 1, -1};
+
+    // En tableros de más casillas solo se generan jugadas cerca de las fichas existentes
+    private static final int FULL_MOVEGEN_CELLS = 25;
+    private static final int NEIGHBOUR_RADIUS = 2;
+
+    private static final int MAX_EVAL = NegamaxSearch.WIN_SCORE / 2 - 1;
+
+    private final int mSize;
+    private final int mWinLength;
+    private final int mCellCount;
+    private final Tables mTables;
+
+    private final byte[] mBoard;
+    // Fichas a distancia NEIGHBOUR_RADIUS o menos de cada casilla
+    private final byte[] mNeighbours;
+    // Fichas de cada jugador en cada ventana de K casillas, indexadas por dirección * celdas + inicio
+    private final byte[] mWindowX;
+    private final byte[] mWindowO;
+    // Una clave Zobrist por cada una de las 8 simetrías del tablero
+    private final long[] mHashes = new long[8];
+    // Casillas libres en mFreeCells[0, celdas - jugadas) y posición de cada casilla en ese
+    // arreglo; elegir una libre al azar cuesta O(1) y no reserva memoria
+    private final int[] mFreeCells;
+    private final int[] mFreeIndex;
+
+    private long mEval; // desde el punto de vista de X
+    private int mTurn = X;
+    private int mMoveCount;
+    private int mLastMove = -1;
+    private int mCompleteWindows;
+    private int mWinner = EMPTY;
+    private int mWinStart = -1;
+    private int mWinEnd = -1;
+
+    public GameBoard(int size, int winLength) {
+        if (size < MIN_SIZE || winLength < MIN_SIZE || winLength > size || winLength > MAX_WIN_LENGTH) {
+            throw new IllegalArgumentException("Invalid board " + size + "x" + size + " with " + winLength + " in a row");
+        }
+        mSize = size;
+        mWinLength = winLength;
+        mCellCount = size * size;
+        mTables = Tables.get(size, winLength);
+        mBoard = new byte[mCellCount];
+        mNeighbours = new byte[mCellCount];
+        mWindowX = new byte[4 * mCellCount];
+        mWindowO = new byte[4 * mCellCount];
+        mFreeCells = new int[mCellCount];
+        mFreeIndex = new int[mCellCount];
+        resetFreeCells();
+    }
+
+    public GameBoard(GameBoard other) {
+        this(other.mSize, other.mWinLength);
+        copyFrom(other);
+    }
+
+    public static int valueOf(String symbol) {
+        return BitBoard.valueOf(symbol);
+    }
+
+    public static String symbol(int value) {
+        return BitBoard.symbol(value);
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    public int winLength() {
+        return mWinLength;
+    }
+
+    /**
+     * Indica si es el Triqui clásico (3x3, 3 en línea)
+     */
+    public boolean isClassic() {
+        return mSize == BitBoard.SIZE && mWinLength == BitBoard.SIZE;
+    }
+
+    public int cell(int row, int col) {
+        return row * mSize + col;
+    }
+
+    public boolean isInside(int row, int col) {
+        return row >= 0 && row < mSize && col >= 0 && col < mSize;
+    }
+
+    public int get(int cell) {
+        return mBoard[cell];
+    }
+
+    @Override
+    public boolean isEmpty(int cell) {
+        return mBoard[cell] == EMPTY;
+    }
+
+    /**
+     * Coloca la ficha del jugador en una casilla libre y comprueba si completa una línea
+     */
+    public void play(int cell, int player) {
+        mBoard[cell] = (byte) player;
+        // La casilla pasa al final de la zona libre, que se acorta en uno
+        swapFreeCells(cell, mFreeCells[mCellCount - mMoveCount - 1]);
+        mMoveCount++;
+        mLastMove = cell;
+        updateHashes(cell, player);
+        updateNeighbours(cell, 1);
+        updateWindows(cell, player, 1);
+    }
+
+    /**
+     * Retira la ficha de una casilla sin tocar el turno
+     */
+    public void remove(int cell) {
+        int player = mBoard[cell];
+        if (player == EMPTY) {
+            return;
+        }
+        mBoard[cell] = EMPTY;
+        // La casilla pasa a la primera posición ocupada, que se suma a la zona libre
+        swapFreeCells(cell, mFreeCells[mCellCount - mMoveCount]);
+        mMoveCount--;
+        if (mLastMove == cell) {
+            mLastMove = -1;
+        }
+        updateHashes(cell, player);
+        updateNeighbours(cell, -1);
+        updateWindows(cell, player, -1);
+    }
+
+    /**
+     * Asigna el valor de una casilla, sobrescribiendo lo que hubiera
+     */
+    public void set(int cell, int value) {
+        if (mBoard[cell] == value) {
+            return;
+        }
+        remove(cell);
+        if (value == X || value == O) {
+            play(cell, value);
+        }
+    }
+
+    private void swapFreeCells(int a, int b) {
+        int indexA = mFreeIndex[a];
+        int indexB = mFreeIndex[b];
+        mFreeCells[indexA] = b;
+        mFreeIndex[b] = indexA;
+        mFreeCells[indexB] = a;
+        mFreeIndex[a] = indexB;
+    }
+
+    private void resetFreeCells() {
+        for (int cell = 0; cell < mCellCount; cell++) {
+            mFreeCells[cell] = cell;
+            mFreeIndex[cell] = cell;
+        }
+    }
+
+    /**
+     * Casilla libre elegida de manera uniforme, o -1 si el tablero está lleno
+     */
+    public int randomEmptyCell(Random random) {
+        int free = mCellCount - mMoveCount;
+        return free == 0 ? -1 : mFreeCells[random.nextInt(free)];
+    }
+
+    private void updateHashes(int cell, int player) {
+        long[] keys = mTables.zobrist;
+        int offset = (player - 1) * mCellCount;
+        int[][] symmetries = mTables.symmetries;
+        for (int s = 0; s < 8; s++) {
+            mHashes[s] ^= keys[offset + symmetries[s][cell]];
+        }
+    }
+
+    private void updateNeighbours(int cell, int delta) {
+        int row = cell / mSize;
+        int col = cell % mSize;
+        int top = Math.max(0, row - NEIGHBOUR_RADIUS);
+        int bottom = Math.min(mSize - 1, row + NEIGHBOUR_RADIUS);
+        int left = Math.max(0, col - NEIGHBOUR_RADIUS);
+        int right = Math.min(mSize - 1, col + NEIGHBOUR_RADIUS);
+        for (int r = top; r <= bottom; r++) {
+            for (int c = left; c <= right; c++) {
+                mNeighbours[r * mSize + c] += delta;
+            }
+        }
+    }
+
+    /**
+     * Actualiza las ventanas de K casillas que pasan por {@code cell}: valoración,
+     * ventanas completas y ganador.
+     */
+    private void updateWindows(int cell, int player, int delta) {
+        int row = cell / mSize;
+        int col = cell % mSize;
+        int span = mWinLength - 1;
+        byte[] own = player == X ? mWindowX : mWindowO;
+        boolean removedWinLine = false;
+        for (int d = 0; d < 4; d++) {
+            int dr = DIR_ROW[d];
+            int dc = DIR_COL[d];
+            for (int j = 0; j < mWinLength; j++) {
+                int startRow = row - j * dr;
+                int startCol = col - j * dc;
+                if (!isInside(startRow, startCol) || !isInside(startRow + span * dr, startCol + span * dc)) {
+                    continue;
+                }
+                int start = startRow * mSize + startCol;
+                int index = d * mCellCount + start;
+                mEval -= contribution(index);
+                own[index] += delta;
+                mEval += contribution(index);
+
+                if (own[index] == mWinLength && delta > 0) {
+                    if (mCompleteWindows++ == 0) {
+                        mWinner = player;
+                        mWinStart = start;
+                        mWinEnd = cell(startRow + span * dr, startCol + span * dc);
+                    }
+                } else if (own[index] == mWinLength - 1 && delta < 0) {
+                    mCompleteWindows--;
+                    removedWinLine = true;
+                }
+            }
+        }
+        if (removedWinLine) {
+            // La línea guardada puede ser la que se rompió: se busca otra que siga completa
+            findWinLine();
+        }
+    }
+
+    /**
+     * Toma como línea ganadora la primera ventana completa, o ninguna. Recorre todas las
+     * ventanas, pero solo hace falta al retirar una ficha de una línea completa.
+     */
+    private void findWinLine() {
+        mWinner = EMPTY;
+        mWinStart = -1;
+        mWinEnd = -1;
+        if (mCompleteWindows == 0) {
+            return;
+        }
+        int span = mWinLength - 1;
+        for (int index = 0; index < mWindowX.length; index++) {
+            int player = mWindowX[index] == mWinLength ? X : mWindowO[index] == mWinLength ? O : EMPTY;
+            if (player != EMPTY) {
+                int d = index / mCellCount;
+                int start = index % mCellCount;
+                mWinner = player;
+                mWinStart = start;
+                mWinEnd = start + span * (DIR_ROW[d] * mSize + DIR_COL[d]);
+                return;
+            }
+        }
+    }
+
+    private long contribution(int index) {
+        int x = mWindowX[index];
+        int o = mWindowO[index];
+        if (x > 0 && o > 0) return 0;
+        if (x > 0) return mTables.windowWeights[x];
+        if (o > 0) return -mTables.windowWeights[o];
+        return 0;
+    }
+
+    public boolean hasWon(int player) {
+        return mWinner == player;
+    }
+
+    /**
+     * Devuelve el ganador (X u O) o EMPTY si nadie ha ganado
+     */
+    public int winner() {
+        return mWinner;
+    }
+
+    /**
+     * Casillas de los extremos de la línea ganadora, o -1 si nadie ha ganado
+     */
+    public int winStart() {
+        return mWinStart;
+    }
+
+    public int winEnd() {
+        return mWinEnd;
+    }
+
+    /**
+     * Copia el contenido de las casillas (EMPTY, X u O), fila a fila
+     */
+    public void copyCells(byte[] out) {
+        System.arraycopy(mBoard, 0, out, 0, mCellCount);
+    }
+
+    public int lastMove() {
+        return mLastMove;
+    }
+
+    public int moveCount() {
+        return mMoveCount;
+    }
+
+    @Override
+    public boolean isFull() {
+        return mMoveCount == mCellCount;
+    }
+
+    public boolean isDraw() {
+        return isFull() && mWinner == EMPTY;
+    }
+
+    public void clear() {
+        Arrays.fill(mBoard, (byte) EMPTY);
+        Arrays.fill(mNeighbours, (byte) 0);
+        Arrays.fill(mWindowX, (byte) 0);
+        Arrays.fill(mWindowO, (byte) 0);
+        Arrays.fill(mHashes, 0);
+        resetFreeCells();
+        mEval = 0;
+        mTurn = X;
+        mMoveCount = 0;
+        mLastMove = -1;
+        mCompleteWindows = 0;
+        mWinner = EMPTY;
+        mWinStart = -1;
+        mWinEnd = -1;
+    }
+
+    /**
+     * Copia el estado de otro tablero del mismo tamaño
+     */
+    public void copyFrom(GameBoard other) {
+        if (other.mSize != mSize || other.mWinLength != mWinLength) {
+            throw new IllegalArgumentException("Board dimensions differ");
+        }
+        System.arraycopy(other.mBoard, 0, mBoard, 0, mCellCount);
+        System.arraycopy(other.mNeighbours, 0, mNeighbours, 0, mCellCount);
+        System.arraycopy(other.mWindowX, 0, mWindowX, 0, mWindowX.length);
+        System.arraycopy(other.mWindowO, 0, mWindowO, 0, mWindowO.length);
+        System.arraycopy(other.mHashes, 0, mHashes, 0, mHashes.length);
+        System.arraycopy(other.mFreeCells, 0, mFreeCells, 0, mCellCount);
+        System.arraycopy(other.mFreeIndex, 0, mFreeIndex, 0, mCellCount);
+        mEval = other.mEval;
+        mTurn = other.mTurn;
+        mMoveCount = other.mMoveCount;
+        mLastMove = other.mLastMove;
+        mCompleteWindows = other.mCompleteWindows;
+        mWinner = other.mWinner;
+        mWinStart = other.mWinStart;
+        mWinEnd = other.mWinEnd;
+    }
+
+    /**
+     * Vuelca un tablero clásico 3x3 en un {@link BitBoard}, incluido el turno
+     */
+    public void copyTo(BitBoard out) {
+        out.clear();
+        for (int cell = 0; cell < BitBoard.CELLS; cell++) {
+            if (mBoard[cell] != EMPTY) {
+                out.play(cell, mBoard[cell]);
+            }
+        }
+        out.setTurn(mTurn);
+    }
+
+    public void setTurn(int player) {
+        mTurn = player;
+    }
+
+    // GamePosition
+
+    @Override
+    public int cellCount() {
+        return mCellCount;
+    }
+
+    @Override
+    public int sideToMove() {
+        return mTurn;
+    }
+
+    @Override
+    public void play(int cell) {
+        play(cell, mTurn);
+        mTurn = BitBoard.opponent(mTurn);
+    }
+
+    @Override
+    public void undo(int cell) {
+        remove(cell);
+        mTurn = BitBoard.opponent(mTurn);
+    }
+
+    @Override
+    public boolean lastMoveWon() {
+        return mWinner != EMPTY;
+    }
+
+    /**
+     * Clave Zobrist de la posición tal cual, sin simetrías ni turno. Sirve para comprobar
+     * si el tablero cambió desde que se tomó una copia.
+     */
+    public long positionKey() {
+        return mHashes[0];
+    }
+
+    /**
+     * Menor de las 8 claves Zobrist simétricas, combinada con el turno
+     */
+    @Override
+    public long canonicalKey() {
+        long best = mHashes[0];
+        for (int s = 1; s < 8; s++) {
+            if (mHashes[s] < best) {
+                best = mHashes[s];
+            }
+        }
+        return mTurn == O ? best ^ mTables.turnKey : best;
+    }
+
+    @Override
+    public int canonicalSymmetry() {
+        int symmetry = 0;
+        for (int s = 1; s < 8; s++) {
+            if (mHashes[s] < mHashes[symmetry]) {
+                symmetry = s;
+            }
+        }
+        return symmetry;
+    }
+
+    @Override
+    public int symmetricCell(int cell, int symmetry) {
+        return mTables.symmetries[symmetry][cell];
+    }
+
+    @Override
+    public int orderMoves(int[] moves) {
+        int[] order = mTables.order;
+        boolean local = mCellCount > FULL_MOVEGEN_CELLS;
+        if (local && mMoveCount == 0) {
+            moves[0] = order[0];
+            return 1;
+        }
+        int count = 0;
+        for (int cell : order) {
+            if (mBoard[cell] == EMPTY && (!local || mNeighbours[cell] > 0)) {
+                moves[count++] = cell;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public int evaluate() {
+        long eval = mTurn == X ? mEval : -mEval;
+        return (int) Math.max(-MAX_EVAL, Math.min(MAX_EVAL, eval));
+    }
+
+    /**
+     * Tablas precalculadas e inmutables, compartidas por todos los tableros de las mismas dimensiones
+     */
+    private static final class Tables {
+        private static final Map<Integer, Tables> CACHE = new HashMap<>();
+
+        final long[] zobrist;
+        final long turnKey;
+        final int[][] symmetries;
+        // Casillas ordenadas por número de ventanas que las cruzan (centro primero)
+        final int[] order;
+        // Peso heurístico de una ventana con c fichas de un solo jugador
+        final long[] windowWeights;
+
+        static synchronized Tables get(int size, int winLength) {
+            int key = size * (MAX_WIN_LENGTH + 1) + winLength;
+            Tables tables = CACHE.get(key);
+            if (tables == null) {
+                tables = new Tables(size, winLength);
+                CACHE.put(key, tables);
+            }
+            return tables;
+        }
+
+        private Tables(int size, int winLength) {
+            int cells = size * size;
+            // Cada regla (N, K) tiene sus propias claves: una misma posición vale distinto con otro K
+            Random random = new Random(0x5EEDL ^ ((long) size << 32 | winLength));
+            zobrist = new long[2 * cells];
+            for (int i = 0; i < zobrist.length; i++) {
+                zobrist[i] = random.nextLong();
+            }
+            turnKey = random.nextLong();
+
+            symmetries = new int[8][cells];
+            for (int s = 0; s < 8; s++) {
+                for (int row = 0; row < size; row++) {
+                    for (int col = 0; col < size; col++) {
+                        int r = row;
+                        int c = col;
+                        for (int k = 0; k < (s & 3); k++) {
+                            int t = r;
+                            r = c;
+                            c = size - 1 - t;
+                        }
+                        if (s >= 4) {
+                            c = size - 1 - c;
+                        }
+                        symmetries[s][row * size + col] = r * size + c;
+                    }
+                }
+            }
+
+            final int[] windows = new int[cells];
+            int span = winLength - 1;
+            for (int d = 0; d < 4; d++) {
+                for (int row = 0; row < size; row++) {
+                    for (int col = 0; col < size; col++) {
+                        int endRow = row + span * DIR_ROW[d];
+                        int endCol = col + span * DIR_COL[d];
+                        if (endRow < 0 || endRow >= size || endCol < 0 || endCol >= size) {
+                            continue;
+                        }
+                        for (int j = 0; j < winLength; j++) {
+                            windows[(row + j * DIR_ROW[d]) * size + col + j * DIR_COL[d]]++;
+                        }
+                    }
+                }
+            }
+            final double center = (size - 1) / 2.0;
+            Integer[] sorted = new Integer[cells];
+            for (int i = 0; i < cells; i++) {
+                sorted[i] = i;
+            }
+            Arrays.sort(sorted, (a, b) -> {
+                if (windows[a] != windows[b]) {
+                    return windows[b] - windows[a];
+                }
+                double da = Math.abs(a / size - center) + Math.abs(a % size - center);
+                double db = Math.abs(b / size - center) + Math.abs(b % size - center);
+                return Double.compare(da, db);
+            });
+            order = new int[cells];
+            for (int i = 0; i < cells; i++) {
+                order[i] = sorted[i];
+            }
+
+            windowWeights = new long[winLength + 1];
+            for (int c = 1; c <= winLength; c++) {
+                windowWeights[c] = 1L << (3 * (c - 1));
+            }
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.androidtictactoe_tutorial2.game;
+
+/**
+ * Posición sobre la que pueden buscar los motores de IA.
+ * Mantiene el turno: {@link #play(int)} coloca la ficha del jugador que mueve y pasa el turno,
+ * {@link #undo(int)} lo revierte.
+ */
+public interface GamePosition {
+
+    int cellCount();
+
+    int sideToMove();
+
+    boolean isEmpty(int cell);
+
+    void play(int cell);
+
+    void undo(int cell);
+
+    /**
+     * Indica si la última jugada hecha completó una línea ganadora
+     */
+    boolean lastMoveWon();
+
+    boolean isFull();
+
+    /**
+     * Clave de la posición, igual para todas las posiciones equivalentes por simetría
+     */
+    long canonicalKey();
+
+    /**
+     * Simetría (0-7) que lleva el tablero a la orientación de {@link #canonicalKey()};
+     * 0 es la identidad
+     */
+    int canonicalSymmetry();
+
+    /**
+     * Casilla a la que la simetría {@code symmetry} lleva {@code cell}. Las simetrías
+     * 1-3 giran el tablero 90, 180 y 270 grados y 4-7 aplican además un reflejo.
+     */
+    int symmetricCell(int cell, int symmetry);
+
+    /**
+     * Escribe las jugadas legales en {@code moves}, las más prometedoras primero,
+     * y devuelve cuántas son.
+     */
+    int orderMoves(int[] moves);
+
+    /**
+     * Valoración heurística para el jugador que mueve, usada al agotar la profundidad
+     */
+    int evaluate();
+}
@@ -0,0 +1,328 @@
+package com.example.androidtictactoe_tutorial2.game;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * Búsqueda de Monte Carlo en árbol (MCTS) con selección UCT.
+ *
+ * Varios hilos de un {@link ForkJoinPool} recorren el mismo árbol a la vez: cada uno baja
+ * por el árbol eligiendo con UCT, expande la hoja y juega una partida aleatoria hasta el
+ * final. Las visitas y los puntos de cada nodo son contadores atómicos, sin bloqueos; la
+ * visita se suma al bajar (pérdida virtual), de modo que los hilos se reparten entre ramas
+ * distintas en lugar de repetir la misma. La fuerza crece con los núcleos y con el tiempo.
+ * El pool se crea en la primera búsqueda que lo necesita; con un solo hilo las partidas se
+ * juegan en el hilo que llama y no se crea ninguno.
+ *
+ * La búsqueda termina antes del plazo cuando la elección ya está decidida: si la segunda
+ * jugada más visitada no puede alcanzar a la primera ni recibiendo todas las partidas que
+ * caben en el tiempo restante, seguir no cambiaría la respuesta.
+ *
+ * Una instancia puede usarse desde cualquier hilo, pero solo para una búsqueda a la vez.
+ */
+public final class MonteCarloSearch {
+    // Constante de exploración de UCT para recompensas en [0, 1]
+    private static final double EXPLORATION = 1.4;
+
+    // Visitas que necesita una hoja antes de expandirse
+    private static final int EXPANSION_VISITS = 2;
+
+    // Puntos por partida, en medios puntos para contar las tablas con enteros
+    private static final int WIN_POINTS = 2;
+    private static final int DRAW_POINTS = 1;
+
+    // Cada cuántas partidas de un hilo se comprueba si la raíz ya está decidida
+    private static final int DECIDED_CHECK_MASK = 255;
+
+    private final int mParallelism;
+    // Solo con varios hilos, creado al empezar la primera búsqueda
+    private ForkJoinPool mPool;
+    private boolean mShutdown;
+
+    // Estadísticas de la última búsqueda
+    private long mLastPlayouts;
+    private long mLastNanos;
+    private double mLastValue;
+    private boolean mLastDecidedEarly;
+
+    /**
+     * @param parallelism número de hilos que juegan partidas a la vez; con 1 se juegan en el
+     *                    hilo que llama
+     */
+    public MonteCarloSearch(int parallelism) {
+        mParallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * Busca hasta que {@link System#nanoTime()} supera {@code deadline} o se interrumpe el
+     * hilo que llama, y devuelve la jugada más visitada de la raíz, o -1 si no quedan jugadas.
+     * La posición no se modifica.
+     */
+    public int search(GameBoard position, long deadline) {
+        long start = System.nanoTime();
+        mLastPlayouts = 0;
+        mLastValue = 0;
+        mLastDecidedEarly = false;
+        if (position.lastMoveWon() || position.isFull()) {
+            mLastNanos = 0;
+            return -1;
+        }
+
+        Node root = new Node(-1);
+        int[] moves = new int[position.cellCount()];
+        Node[] children = root.expand(position, moves);
+        if (children.length == 1) {
+            // Una sola jugada posible: no hay nada que decidir
+            mLastNanos = System.nanoTime() - start;
+            mLastDecidedEarly = true;
+            return children[0].move;
+        }
+
+        AtomicBoolean stop = new AtomicBoolean();
+        long[] playouts = new long[mParallelism];
+        if (mParallelism == 1) {
+            playouts[0] = runPlayouts(position, root, start, deadline, stop);
+        } else {
+            runInPool(position, root, start, deadline, stop, playouts);
+        }
+
+        Node best = children[0];
+        for (Node child : children) {
+            if (child.visits > best.visits) {
+                best = child;
+            }
+        }
+        for (long count : playouts) {
+            mLastPlayouts += count;
+        }
+        mLastNanos = System.nanoTime() - start;
+        mLastDecidedEarly = stop.get() && System.nanoTime() - deadline < 0 && !Thread.currentThread().isInterrupted();
+        mLastValue = best.visits == 0 ? 0 : (double) best.points / (WIN_POINTS * best.visits);
+        return best.move;
+    }
+
+    private void runInPool(GameBoard position, Node root, long start, long deadline,
+                           AtomicBoolean stop, long[] playouts) {
+        ForkJoinPool pool = pool();
+        ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[mParallelism];
+        // Los hilos solo leen la posición de la raíz para reiniciar su propia copia
+        for (int i = 0; i < mParallelism; i++) {
+            final int worker = i;
+            tasks[i] = pool.submit(() -> {
+                playouts[worker] = runPlayouts(position, root, start, deadline, stop);
+            });
+        }
+        try {
+            for (ForkJoinTask<?> task : tasks) {
+                task.get();
+            }
+        } catch (InterruptedException e) {
+            stop.set(true);
+            for (ForkJoinTask<?> task : tasks) {
+                task.quietlyJoin();
+            }
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            stop.set(true);
+            throw new IllegalStateException("Playout failed", e.getCause());
+        }
+    }
+
+    private synchronized ForkJoinPool pool() {
+        if (mShutdown) {
+            throw new RejectedExecutionException("MonteCarloSearch is shut down");
+        }
+        if (mPool == null) {
+            mPool = new ForkJoinPool(mParallelism);
+        }
+        return mPool;
+    }
+
+    /**
+     * Bucle de un hilo: selección, expansión, partida aleatoria y propagación, hasta el plazo
+     * o hasta que la raíz queda decidida, o hasta que se interrumpe el hilo. Devuelve cuántas
+     * partidas jugó. Cada hilo copia
+     * {@code rootBoard} una vez y la reinicia con {@link GameBoard#copyFrom} en cada partida.
+     */
+    private static long runPlayouts(GameBoard rootBoard, Node root, long start, long deadline, AtomicBoolean stop) {
+        int cells = rootBoard.cellCount();
+        int rootPlayer = rootBoard.sideToMove();
+        GameBoard board = new GameBoard(rootBoard);
+        Node[] path = new Node[cells + 1];
+        int[] moves = new int[cells];
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        long playouts = 0;
+        Thread thread = Thread.currentThread();
+        while (!stop.get() && System.nanoTime() - deadline < 0 && !thread.isInterrupted()) {
+            board.copyFrom(rootBoard);
+            Node node = root;
+            Node.VISITS.incrementAndGet(node);
+            int length = 0;
+            path[length++] = node;
+
+            // Selección y expansión
+            while (!board.lastMoveWon() && !board.isFull()) {
+                Node[] children = node.children;
+                if (children == null) {
+                    if (node.visits < EXPANSION_VISITS) {
+                        break;
+                    }
+                    children = node.expand(board, moves);
+                }
+                node = select(children, node.visits);
+                Node.VISITS.incrementAndGet(node);
+                board.play(node.move);
+                path[length++] = node;
+            }
+
+            int winner = board.lastMoveWon() ? board.winner() : rollout(board, random);
+
+            // Cada nodo suma los puntos del jugador que hizo su jugada
+            for (int i = 1; i < length; i++) {
+                int player = (i & 1) == 1 ? rootPlayer : BitBoard.opponent(rootPlayer);
+                int points = winner == player ? WIN_POINTS : winner == GameBoard.EMPTY ? DRAW_POINTS : 0;
+                if (points != 0) {
+                    Node.POINTS.addAndGet(path[i], points);
+                }
+            }
+            playouts++;
+            if ((playouts & DECIDED_CHECK_MASK) == 0 && isDecided(root, start, deadline)) {
+                stop.set(true);
+            }
+        }
+        return playouts;
+    }
+
+    /**
+     * Indica si la jugada más visitada de la raíz ya no puede perder el primer puesto: ni
+     * dándole a la segunda todas las partidas que faltan, al ritmo que llevan todos los hilos
+     * juntos, la alcanzaría.
+     */
+    private static boolean isDecided(Node root, long start, long deadline) {
+        int first = 0;
+        int second = 0;
+        for (Node child : root.children) {
+            int visits = child.visits;
+            if (visits > first) {
+                second = first;
+                first = visits;
+            } else if (visits > second) {
+                second = visits;
+            }
+        }
+        long now = System.nanoTime();
+        long elapsed = now - start;
+        if (elapsed <= 0) {
+            return false;
+        }
+        double remaining = (double) root.visits * (deadline - now) / elapsed;
+        return first - second > remaining;
+    }
+
+    /**
+     * Juega jugadas al azar hasta que alguien gana o se llena el tablero; devuelve el ganador
+     */
+    private static int rollout(GameBoard board, ThreadLocalRandom random) {
+        while (!board.isFull()) {
+            board.play(board.randomEmptyCell(random));
+            if (board.lastMoveWon()) {
+                return board.winner();
+            }
+        }
+        return GameBoard.EMPTY;
+    }
+
+    private static Node select(Node[] children, int parentVisits) {
+        double logVisits = Math.log(parentVisits);
+        Node best = null;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for (Node child : children) {
+            int visits = child.visits;
+            if (visits == 0) {
+                return child;
+            }
+            double value = (double) child.points / (WIN_POINTS * visits)
+                    + EXPLORATION * Math.sqrt(logVisits / visits);
+            if (value > bestValue) {
+                bestValue = value;
+                best = child;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Partidas jugadas en la última búsqueda, sumando todos los hilos
+     */
+    public long getLastPlayouts() {
+        return mLastPlayouts;
+    }
+
+    public long getPlayoutsPerSecond() {
+        return mLastNanos == 0 ? 0 : mLastPlayouts * 1_000_000_000L / mLastNanos;
+    }
+
+    /**
+     * Fracción de puntos de la jugada elegida en sus partidas (1 = gana siempre, 0.5 = tablas)
+     */
+    public double getLastValue() {
+        return mLastValue;
+    }
+
+    /**
+     * Indica si la última búsqueda terminó antes del plazo porque la jugada ya estaba decidida
+     */
+    public boolean wasDecidedEarly() {
+        return mLastDecidedEarly;
+    }
+
+    public int getParallelism() {
+        return mParallelism;
+    }
+
+    public synchronized void shutdown() {
+        mShutdown = true;
+        if (mPool != null) {
+            mPool.shutdownNow();
+        }
+    }
+
+    private static final class Node {
+        static final AtomicIntegerFieldUpdater<Node> VISITS =
+                AtomicIntegerFieldUpdater.newUpdater(Node.class, "visits");
+        static final AtomicLongFieldUpdater<Node> POINTS =
+                AtomicLongFieldUpdater.newUpdater(Node.class, "points");
+        static final AtomicReferenceFieldUpdater<Node, Node[]> CHILDREN =
+                AtomicReferenceFieldUpdater.newUpdater(Node.class, Node[].class, "children");
+
+        final int move;
+        volatile int visits;
+        // Medios puntos del jugador que hizo la jugada de este nodo
+        volatile long points;
+        volatile Node[] children;
+
+        Node(int move) {
+            this.move = move;
+        }
+
+        /**
+         * Crea los hijos; si otro hilo se adelantó, devuelve los suyos
+         */
+        Node[] expand(GameBoard board, int[] moves) {
+            int count = board.orderMoves(moves);
+            Node[] created = new Node[count];
+            for (int i = 0; i < count; i++) {
+                created[i] = new Node(moves[i]);
+            }
+            return CHILDREN.compareAndSet(this, null, created) ? created : children;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.androidtictactoe_tutorial2.game;
+
+import java.util.Arrays;
+
+/**
+ * Pila de jugadas de una partida, con deshacer, rehacer y repetición.
+ *
+ * Cada jugada se guarda como el índice de su casilla en un byte (dos bytes, big endian, en
+ * tableros de más de 256 casillas); de quién es cada jugada se deduce de quién empezó, porque
+ * los turnos se alternan. Deshacer retira una sola ficha con {@link GameBoard#remove(int)}, en
+ * O(K), sin reconstruir el tablero; las jugadas deshechas se conservan tras el cursor hasta que
+ * se juega otra distinta, y rehacerlas las vuelve a colocar. La misma codificación es la que se
+ * guarda: {@link #wrap} la reutiliza sin copiarla, para repetir una partida guardada jugada a
+ * jugada con {@link #redo}.
+ */
+public final class MoveHistory {
+    private static final int NARROW_CELLS = 256;
+    private static final int INITIAL_CAPACITY = 16;
+
+    private byte[] mData;
+    private int mBytesPerMove;
+    private int mFirstPlayer;
+    // mData es el arreglo recibido en wrap(), que se copia antes de escribir en él
+    private boolean mShared;
+    // Jugadas hechas, y jugadas guardadas contando las deshechas que se pueden rehacer
+    private int mCount;
+    private int mLength;
+
+    /**
+     * @param cellCount casillas del tablero, que deciden si cada jugada ocupa uno o dos bytes
+     * @param firstPlayer {@link GameBoard#X} o {@link GameBoard#O}
+     */
+    public MoveHistory(int cellCount, int firstPlayer) {
+        mData = new byte[INITIAL_CAPACITY];
+        reset(cellCount, firstPlayer);
+    }
+
+    private MoveHistory(byte[] encoded, int length, int cellCount, int firstPlayer) {
+        mData = encoded;
+        mShared = true;
+        reset(cellCount, firstPlayer);
+        if (length % mBytesPerMove != 0 || length > encoded.length) {
+            throw new IllegalArgumentException("Bad move encoding length " + length);
+        }
+        mLength = length / mBytesPerMove;
+    }
+
+    /**
+     * Historial para repetir las jugadas codificadas en {@code encoded[0, length)} (como las
+     * deja {@link #encode}): empieza en el tablero vacío y cada {@link #redo} coloca la siguiente.
+     * El arreglo no se copia mientras no se juegue nada nuevo.
+     */
+    public static MoveHistory wrap(byte[] encoded, int length, int cellCount, int firstPlayer) {
+        return new MoveHistory(encoded, length, cellCount, firstPlayer);
+    }
+
+    /**
+     * Vacía el historial para una partida nueva
+     */
+    public void reset(int cellCount, int firstPlayer) {
+        mBytesPerMove = bytesPerMove(cellCount);
+        mFirstPlayer = firstPlayer;
+        mCount = 0;
+        mLength = 0;
+    }
+
+    public static int bytesPerMove(int cellCount) {
+        return cellCount > NARROW_CELLS ? 2 : 1;
+    }
+
+    public int firstPlayer() {
+        return mFirstPlayer;
+    }
+
+    /**
+     * Jugadas hechas (sin contar las deshechas)
+     */
+    public int size() {
+        return mCount;
+    }
+
+    /**
+     * Casilla de la jugada {@code index}, entre 0 y {@link #size()} (o las deshechas, hasta el total guardado)
+     */
+    public int get(int index) {
+        if (index < 0 || index >= mLength) {
+            throw new IndexOutOfBoundsException("Move " + index + " of " + mLength);
+        }
+        int offset = index * mBytesPerMove;
+        if (mBytesPerMove == 1) {
+            return mData[offset] & 0xff;
+        }
+        return (mData[offset] & 0xff) << 8 | (mData[offset + 1] & 0xff);
+    }
+
+    /**
+     * Jugador que hizo (o hará) la jugada {@code index}
+     */
+    public int playerOf(int index) {
+        return (index & 1) == 0 ? mFirstPlayer : BitBoard.opponent(mFirstPlayer);
+    }
+
+    /**
+     * Jugador al que le toca tras las jugadas hechas
+     */
+    public int sideToMove() {
+        return playerOf(mCount);
+    }
+
+    /**
+     * Apunta una jugada nueva. Si coincide con la siguiente deshecha, las demás deshechas se
+     * conservan; si no, se descartan.
+     */
+    public void push(int cell) {
+        if (mCount < mLength && get(mCount) == cell) {
+            mCount++;
+            return;
+        }
+        int offset = mCount * mBytesPerMove;
+        if (mShared || offset + mBytesPerMove > mData.length) {
+            mData = Arrays.copyOf(mData, Math.max(INITIAL_CAPACITY, Math.max(offset + mBytesPerMove, 2 * mData.length)));
+            mShared = false;
+        }
+        if (mBytesPerMove == 1) {
+            mData[offset] = (byte) cell;
+        } else {
+            mData[offset] = (byte) (cell >>> 8);
+            mData[offset + 1] = (byte) cell;
+        }
+        mCount++;
+        mLength = mCount;
+    }
+
+    public boolean canUndo() {
+        return mCount > 0;
+    }
+
+    public boolean canRedo() {
+        return mCount < mLength;
+    }
+
+    /**
+     * Deshace la última jugada retirando su ficha del tablero, y devuelve su casilla
+     */
+    public int undo(GameBoard board) {
+        if (mCount == 0) {
+            throw new IllegalStateException("Nothing to undo");
+        }
+        int cell = get(--mCount);
+        board.remove(cell);
+        board.setTurn(playerOf(mCount));
+        return cell;
+    }
+
+    /**
+     * Vuelve a colocar la siguiente jugada deshecha (o la siguiente de una repetición), y
+     * devuelve su casilla
+     */
+    public int redo(GameBoard board) {
+        if (mCount == mLength) {
+            throw new IllegalStateException("Nothing to redo");
+        }
+        int cell = get(mCount);
+        board.play(cell, playerOf(mCount));
+        mCount++;
+        board.setTurn(playerOf(mCount));
+        return cell;
+    }
+
+    /**
+     * Copia las jugadas hechas con la codificación compacta: un byte por jugada, o dos en
+     * tableros de más de 256 casillas
+     */
+    public byte[] encode() {
+        return Arrays.copyOf(mData, mCount * mBytesPerMove);
+    }
+}
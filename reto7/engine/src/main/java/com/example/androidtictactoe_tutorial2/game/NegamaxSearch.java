@@ -0,0 +1,502 @@
+package com.example.androidtictactoe_tutorial2.game;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Búsqueda negamax con poda alfa-beta y tabla de transposición.
+ *
+ * La tabla se indexa con {@link GamePosition#canonicalKey()}, así que las posiciones
+ * equivalentes por rotación o reflejo comparten entrada; por eso la mejor jugada se guarda
+ * en la orientación canónica y se devuelve a la del tablero al leerla. Funciona con cualquier
+ * {@link GamePosition}: en 3x3 recorre el árbol completo y en tableros grandes se limita
+ * con una profundidad máxima y la heurística de la posición.
+ *
+ * La búsqueda se puede cortar con un plazo ({@link #search(GamePosition, int, Random, long)})
+ * o interrumpiendo el hilo que la ejecuta; en ese caso devuelve la mejor jugada encontrada
+ * hasta el momento. {@link #searchIterative(GamePosition, long)} profundiza de uno en uno
+ * hasta agotar el plazo, explorando primero la variante principal de la iteración anterior
+ * y ordenando el resto con la heurística de historia.
+ *
+ * No es seguro compartir una instancia entre hilos.
+ */
+public final class NegamaxSearch {
+    public static final int WIN_SCORE = 1_000_000;
+    public static final int UNLIMITED_DEPTH = Integer.MAX_VALUE;
+    public static final long NO_DEADLINE = Long.MAX_VALUE;
+
+    private static final int INFINITY = Integer.MAX_VALUE;
+
+    // Tipo de cota guardada en la tabla de transposición
+    private static final int EXACT = 1;
+    private static final int LOWER_BOUND = 2;
+    private static final int UPPER_BOUND = 3;
+
+    // Cada cuántos nodos se comprueba el plazo y la interrupción del hilo
+    private static final int STOP_CHECK_MASK = 1023;
+
+    private final long[] mTableKeys;
+    private final long[] mTableData;
+    private final int mTableMask;
+
+    // Buffers de jugadas por nivel, reutilizados entre búsquedas
+    private int[][] mMoves = new int[0][];
+
+    // Variante principal: mPv[ply] guarda la mejor línea desde ese nivel (tabla triangular)
+    private int[][] mPv = new int[0][];
+    private int[] mPvLength = new int[0];
+    // Variante principal de la iteración anterior, que se explora primero
+    private int[] mPrevPv = new int[0];
+    private int mPrevPvLength;
+    private boolean mFollowPv;
+
+    // Heurística de historia: cuánto ha provocado cada casilla cortes beta
+    private int[] mHistory = new int[0];
+    // Solo en la búsqueda iterativa: en una sola pasada la historia aún no sabe nada y
+    // empeora el orden estático de la posición
+    private boolean mUseHistory;
+
+    // Estadísticas
+    private long mNodes;
+    private long mTableProbes;
+    private long mTableHits;
+    private long mCutoffs;
+    private int mLastScore;
+    private int mCompletedDepth;
+    private long mSearchNanos;
+    private long mSearchNodes;
+
+    // Corte de la búsqueda en curso
+    private long mDeadline = NO_DEADLINE;
+    private boolean mAborted;
+    // Si la iteración en curso dejó alguna rama sin resolver del todo (horizonte o tabla)
+    private boolean mHitHorizon;
+    // Jugadas de la raíz evaluadas por completo en la iteración en curso
+    private int mRootMovesSearched;
+
+    /**
+     * @param tableBits la tabla de transposición tendrá 2^tableBits entradas
+     */
+    public NegamaxSearch(int tableBits) {
+        int size = 1 << tableBits;
+        mTableKeys = new long[size];
+        mTableData = new long[size];
+        mTableMask = size - 1;
+    }
+
+    /**
+     * Devuelve la mejor jugada para el jugador que mueve, o -1 si no quedan jugadas
+     */
+    public int search(GamePosition position, int maxDepth) {
+        return search(position, maxDepth, null);
+    }
+
+    /**
+     * Como {@link #search(GamePosition, int)}, pero si varias jugadas empatan en la raíz
+     * elige una al azar entre ellas.
+     */
+    public int search(GamePosition position, int maxDepth, Random random) {
+        return search(position, maxDepth, random, NO_DEADLINE);
+    }
+
+    /**
+     * Como {@link #search(GamePosition, int, Random)}, pero deja de buscar cuando
+     * {@link System#nanoTime()} supera {@code deadline} o cuando se interrumpe el hilo.
+     * Si se corta, devuelve la mejor de las jugadas de la raíz ya evaluadas (o la primera
+     * en el orden de exploración) y {@link #wasAborted()} pasa a ser verdadero.
+     */
+    public int search(GamePosition position, int maxDepth, Random random, long deadline) {
+        long start = System.nanoTime();
+        long startNodes = mNodes;
+        prepare(position, deadline);
+        mUseHistory = false;
+        mFollowPv = false;
+
+        // Nunca quedan más jugadas que casillas; así la profundidad cabe en la tabla
+        int depth = Math.min(maxDepth, position.cellCount());
+        int move = searchRoot(position, depth, random);
+        mCompletedDepth = mAborted ? 0 : depth;
+        if (mAborted) {
+            mPrevPvLength = 0;
+        } else {
+            savePrincipalVariation();
+        }
+        mSearchNanos = System.nanoTime() - start;
+        mSearchNodes = mNodes - startNodes;
+        return move;
+    }
+
+    /**
+     * Profundización iterativa: busca a profundidad 1, 2, 3... hasta que se agota el plazo,
+     * se encuentra una victoria o derrota forzada, o el árbol queda resuelto por completo.
+     * Devuelve la mejor jugada de la última iteración terminada (o de la iteración cortada,
+     * si llegó a evaluar alguna jugada de la raíz), o -1 si no quedan jugadas.
+     */
+    public int searchIterative(GamePosition position, long deadline) {
+        long start = System.nanoTime();
+        long startNodes = mNodes;
+        prepare(position, deadline);
+        Arrays.fill(mHistory, 0);
+        mUseHistory = true;
+        mPrevPvLength = 0;
+        mCompletedDepth = 0;
+
+        int emptyCells = 0;
+        for (int cell = 0; cell < position.cellCount(); cell++) {
+            if (position.isEmpty(cell)) emptyCells++;
+        }
+
+        int bestMove = -1;
+        int bestScore = 0;
+        for (int depth = 1; depth <= emptyCells; depth++) {
+            mHitHorizon = false;
+            mFollowPv = mPrevPvLength > 0;
+            int move = searchRoot(position, depth, null);
+            if (move == -1) {
+                break;
+            }
+            if (mAborted) {
+                // Con la variante principal primero, una jugada de la raíz ya evaluada es fiable
+                if (mRootMovesSearched > 0 || bestMove == -1) {
+                    bestMove = move;
+                    bestScore = mLastScore;
+                }
+                break;
+            }
+            bestMove = move;
+            bestScore = mLastScore;
+            mCompletedDepth = depth;
+            savePrincipalVariation();
+            if (Math.abs(bestScore) > WIN_SCORE / 2 || !mHitHorizon) {
+                break;
+            }
+        }
+        mLastScore = bestScore;
+        mSearchNanos = System.nanoTime() - start;
+        mSearchNodes = mNodes - startNodes;
+        return bestMove;
+    }
+
+    private void prepare(GamePosition position, long deadline) {
+        mDeadline = deadline;
+        mAborted = false;
+        ensureBuffers(position.cellCount());
+    }
+
+    private int searchRoot(GamePosition position, int depth, Random random) {
+        mRootMovesSearched = 0;
+        mPvLength[0] = 0;
+        int[] moves = mMoves[0];
+        int count = position.orderMoves(moves);
+        if (count == 0 || position.lastMoveWon()) {
+            return -1;
+        }
+        sortMoves(moves, count, mFollowPv ? mPrevPv[0] : -1);
+
+        mNodes++;
+        int bestMove = -1;
+        int bestScore = -INFINITY;
+        int ties = 0;
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            position.play(move);
+            // Con desempate aleatorio la ventana admite igualar al mejor para obtener valores exactos
+            int alpha = random != null && bestScore > -INFINITY ? bestScore - 1 : bestScore;
+            int score = -negamax(position, depth - 1, 1, -INFINITY, -alpha);
+            position.undo(move);
+            mFollowPv = false;
+            if (mAborted) {
+                break;
+            }
+            mRootMovesSearched++;
+
+            if (score > bestScore) {
+                bestScore = score;
+                bestMove = move;
+                ties = 1;
+                updatePv(0, move);
+            } else if (random != null && score == bestScore && random.nextInt(++ties) == 0) {
+                bestMove = move;
+                updatePv(0, move);
+            }
+        }
+        if (bestMove == -1) {
+            // Cortada antes de evaluar ninguna jugada: la primera del orden es la más prometedora
+            bestMove = moves[0];
+            bestScore = 0;
+        }
+        mLastScore = bestScore;
+        return bestMove;
+    }
+
+    private int negamax(GamePosition position, int depth, int ply, int alpha, int beta) {
+        mPvLength[ply] = 0;
+        if ((++mNodes & STOP_CHECK_MASK) == 0 && shouldStop()) {
+            mAborted = true;
+        }
+        if (mAborted) {
+            return 0;
+        }
+        if (position.lastMoveWon()) {
+            return -(WIN_SCORE - ply);
+        }
+        if (position.isFull()) {
+            return 0;
+        }
+        if (depth <= 0) {
+            mHitHorizon = true;
+            return position.evaluate();
+        }
+
+        int originalAlpha = alpha;
+        long key = position.canonicalKey();
+        int symmetry = position.canonicalSymmetry();
+        int slot = index(key);
+        mTableProbes++;
+        long data = mTableData[slot];
+        int hashMove = -1;
+        if (data != 0 && mTableKeys[slot] == key) {
+            int canonicalMove = entryMove(data);
+            if (canonicalMove >= 0) {
+                hashMove = position.symmetricCell(canonicalMove, inverseSymmetry(symmetry));
+            }
+            if (entryDepth(data) >= depth) {
+                mTableHits++;
+                int score = fromTable(entryScore(data), ply);
+                int bound = entryBound(data);
+                if (bound == EXACT) {
+                    mHitHorizon = true;
+                    return score;
+                } else if (bound == LOWER_BOUND && score > alpha) {
+                    alpha = score;
+                } else if (bound == UPPER_BOUND && score < beta) {
+                    beta = score;
+                }
+                if (alpha >= beta) {
+                    mHitHorizon = true;
+                    return score;
+                }
+            }
+        }
+
+        int[] moves = mMoves[ply];
+        int count = position.orderMoves(moves);
+        boolean onPv = mFollowPv && ply < mPrevPvLength;
+        sortMoves(moves, count, onPv ? mPrevPv[ply] : hashMove);
+        if (!onPv) {
+            mFollowPv = false;
+        }
+
+        int best = -INFINITY;
+        int bestMove = -1;
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            position.play(move);
+            int score = -negamax(position, depth - 1, ply + 1, -beta, -alpha);
+            position.undo(move);
+            // Solo la primera rama sigue la variante principal anterior
+            mFollowPv = false;
+            if (mAborted) {
+                // El resultado es incompleto: no se guarda en la tabla
+                return 0;
+            }
+
+            if (score > best) {
+                best = score;
+                bestMove = move;
+            }
+            if (best > alpha) {
+                alpha = best;
+                updatePv(ply, move);
+            }
+            if (alpha >= beta) {
+                mCutoffs++;
+                if (mUseHistory) {
+                    mHistory[move] += depth * depth;
+                }
+                break;
+            }
+        }
+
+        int bound = best <= originalAlpha ? UPPER_BOUND : best >= beta ? LOWER_BOUND : EXACT;
+        mTableKeys[slot] = key;
+        int canonicalMove = bestMove == -1 ? -1 : position.symmetricCell(bestMove, symmetry);
+        mTableData[slot] = packEntry(toTable(best, ply), depth, bound, canonicalMove);
+        return best;
+    }
+
+    // Los giros se deshacen con el giro contrario; cada giro seguido de reflejo es su propia inversa
+    static int inverseSymmetry(int symmetry) {
+        return symmetry >= 4 ? symmetry : (4 - symmetry) & 3;
+    }
+
+    /**
+     * Pone {@code first} (si está en la lista) en cabeza y ordena el resto por historia,
+     * de forma estable para conservar el orden estático de la posición en los empates.
+     */
+    private void sortMoves(int[] moves, int count, int first) {
+        int[] history = mHistory;
+        int from = 0;
+        if (first >= 0) {
+            for (int i = 0; i < count; i++) {
+                if (moves[i] == first) {
+                    System.arraycopy(moves, 0, moves, 1, i);
+                    moves[0] = first;
+                    from = 1;
+                    break;
+                }
+            }
+        }
+        if (!mUseHistory) {
+            return;
+        }
+        for (int i = from + 1; i < count; i++) {
+            int move = moves[i];
+            int value = history[move];
+            if (value == 0) continue;
+            int j = i - 1;
+            while (j >= from && history[moves[j]] < value) {
+                moves[j + 1] = moves[j];
+                j--;
+            }
+            moves[j + 1] = move;
+        }
+    }
+
+    private void updatePv(int ply, int move) {
+        int[] pv = mPv[ply];
+        pv[0] = move;
+        int childLength = mPvLength[ply + 1];
+        System.arraycopy(mPv[ply + 1], 0, pv, 1, childLength);
+        mPvLength[ply] = childLength + 1;
+    }
+
+    private void savePrincipalVariation() {
+        mPrevPvLength = mPvLength[0];
+        System.arraycopy(mPv[0], 0, mPrevPv, 0, mPrevPvLength);
+    }
+
+    private boolean shouldStop() {
+        return Thread.currentThread().isInterrupted()
+                || (mDeadline != NO_DEADLINE && System.nanoTime() - mDeadline > 0);
+    }
+
+    private void ensureBuffers(int cells) {
+        if (mMoves.length < cells + 1 || (mMoves.length > 0 && mMoves[0].length < cells)) {
+            mMoves = new int[cells + 1][cells];
+            mPv = new int[cells + 2][cells + 1];
+            mPvLength = new int[cells + 2];
+            mPrevPv = new int[cells + 1];
+            mHistory = new int[cells];
+        }
+    }
+
+    private int index(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 32) & mTableMask;
+    }
+
+    // Las puntuaciones de victoria se guardan relativas al nodo, no a la raíz
+    private static int toTable(int score, int ply) {
+        if (score > WIN_SCORE / 2) return score + ply;
+        if (score < -WIN_SCORE / 2) return score - ply;
+        return score;
+    }
+
+    private static int fromTable(int score, int ply) {
+        if (score > WIN_SCORE / 2) return score - ply;
+        if (score < -WIN_SCORE / 2) return score + ply;
+        return score;
+    }
+
+    // Entrada: puntuación (32 bits) | mejor jugada + 1 (14 bits) | profundidad (16 bits) | cota (2 bits)
+    private static long packEntry(int score, int depth, int bound, int move) {
+        return ((long) score << 32) | ((long) (move + 1) << 18) | ((long) depth << 2) | bound;
+    }
+
+    private static int entryScore(long data) {
+        return (int) (data >> 32);
+    }
+
+    private static int entryDepth(long data) {
+        return (int) ((data >>> 2) & 0xFFFF);
+    }
+
+    private static int entryBound(long data) {
+        return (int) (data & 3);
+    }
+
+    private static int entryMove(long data) {
+        return (int) ((data >>> 18) & 0x3FFF) - 1;
+    }
+
+    /**
+     * Puntuación de la última búsqueda, desde el punto de vista del jugador que movía
+     */
+    public int getLastScore() {
+        return mLastScore;
+    }
+
+    /**
+     * Indica si la última búsqueda se cortó por plazo o interrupción antes de terminar
+     */
+    public boolean wasAborted() {
+        return mAborted;
+    }
+
+    /**
+     * Última profundidad buscada por completo (en la búsqueda iterativa, la iteración más
+     * profunda que terminó antes del plazo)
+     */
+    public int getCompletedDepth() {
+        return mCompletedDepth;
+    }
+
+    /**
+     * Mejor línea de juego de la última iteración terminada, empezando por la jugada elegida
+     */
+    public int[] getPrincipalVariation() {
+        return Arrays.copyOf(mPrevPv, mPrevPvLength);
+    }
+
+    /**
+     * Nodos por segundo de la última búsqueda
+     */
+    public long getNodesPerSecond() {
+        return mSearchNanos == 0 ? 0 : mSearchNodes * 1_000_000_000L / mSearchNanos;
+    }
+
+    public long getNodeCount() {
+        return mNodes;
+    }
+
+    public long getTableProbes() {
+        return mTableProbes;
+    }
+
+    public long getTableHits() {
+        return mTableHits;
+    }
+
+    public long getCutoffCount() {
+        return mCutoffs;
+    }
+
+    /**
+     * Fracción de consultas a la tabla de transposición que encontraron una entrada útil
+     */
+    public double getCacheHitRate() {
+        return mTableProbes == 0 ? 0 : (double) mTableHits / mTableProbes;
+    }
+
+    public void resetStatistics() {
+        mNodes = 0;
+        mTableProbes = 0;
+        mTableHits = 0;
+        mCutoffs = 0;
+    }
+
+    public void clearTable() {
+        Arrays.fill(mTableData, 0);
+    }
+}
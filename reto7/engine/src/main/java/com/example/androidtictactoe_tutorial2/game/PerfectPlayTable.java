@@ -0,0 +1,164 @@
+package com.example.androidtictactoe_tutorial2.game;
+
+import java.io.DataInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Tabla de jugadas perfectas para el Triqui 3x3.
+ *
+ * Cada posición se codifica en base 3 desde el punto de vista del jugador que mueve
+ * (dígito 0 = libre, 1 = ficha propia, 2 = ficha rival), así que una sola tabla sirve
+ * sin importar quién empezó la partida. Por cada uno de los 3^9 códigos se guarda la
+ * mejor casilla en 4 bits, dos entradas por byte: 9842 bytes en total. La tabla se
+ * genera una vez con {@link #solve()} y se empaqueta como recurso raw; cargarla es
+ * copiar los bytes, sin ningún análisis.
+ */
+public final class PerfectPlayTable {
+    public static final int POSITIONS = 19683; // 3^9
+    public static final int TABLE_BYTES = (POSITIONS + 1) / 2;
+
+    // Valor de la entrada cuando no hay jugada (partida terminada)
+    private static final int NO_MOVE = 0xF;
+
+    // Orden de exploración: centro, esquinas, bordes
+    private static final int[] MOVE_ORDER = {4, 0, 2, 6, 8, 1, 3, 5, 7};
+
+    private final byte[] mTable;
+
+    private PerfectPlayTable(byte[] table) {
+        mTable = table;
+    }
+
+    /**
+     * Envuelve una tabla ya generada (por ejemplo, leída del recurso raw)
+     */
+    public static PerfectPlayTable fromBytes(byte[] table) {
+        if (table.length != TABLE_BYTES) {
+            throw new IllegalArgumentException("Invalid table size: " + table.length);
+        }
+        return new PerfectPlayTable(table);
+    }
+
+    /**
+     * Lee la tabla de un stream. Si el recurso no tiene el tamaño esperado, la resuelve en memoria.
+     */
+    public static PerfectPlayTable load(InputStream in) throws IOException {
+        byte[] table = new byte[TABLE_BYTES];
+        DataInputStream data = new DataInputStream(in);
+        try {
+            data.readFully(table);
+            if (data.read() != -1) {
+                return solve();
+            }
+        } catch (IOException e) {
+            return solve();
+        } finally {
+            data.close();
+        }
+        return new PerfectPlayTable(table);
+    }
+
+    /**
+     * Resuelve el árbol completo del juego (negamax con memoria sobre los 3^9 códigos)
+     */
+    public static PerfectPlayTable solve() {
+        byte[] scores = new byte[POSITIONS];
+        boolean[] solved = new boolean[POSITIONS];
+        byte[] table = new byte[TABLE_BYTES];
+        for (int code = 0; code < POSITIONS; code++) {
+            int mine = 0;
+            int theirs = 0;
+            int rest = code;
+            for (int i = 0; i < BitBoard.CELLS; i++) {
+                int digit = rest % 3;
+                rest /= 3;
+                if (digit == 1) mine |= 1 << i;
+                else if (digit == 2) theirs |= 1 << i;
+            }
+            int best = NO_MOVE;
+            if (!BitBoard.isWin(mine) && !BitBoard.isWin(theirs)) {
+                int bestScore = Integer.MIN_VALUE;
+                int free = ~(mine | theirs) & BitBoard.FULL_MASK;
+                for (int cell : MOVE_ORDER) {
+                    if ((free & (1 << cell)) == 0) continue;
+                    int score = -negamax(theirs, mine | (1 << cell), scores, solved);
+                    if (score > bestScore) {
+                        bestScore = score;
+                        best = cell;
+                    }
+                }
+            }
+            setEntry(table, code, best);
+        }
+        return new PerfectPlayTable(table);
+    }
+
+    /**
+     * Valor de la posición para el jugador que mueve: positivo si gana (más alto cuanto
+     * antes), negativo si pierde y 0 si es tablas.
+     */
+    private static int negamax(int mine, int theirs, byte[] scores, boolean[] solved) {
+        int code = BitBoard.base3(mine) + 2 * BitBoard.base3(theirs);
+        if (solved[code]) {
+            return scores[code];
+        }
+        int free = ~(mine | theirs) & BitBoard.FULL_MASK;
+        int score;
+        if (BitBoard.isWin(theirs)) {
+            score = -(Integer.bitCount(free) + 1);
+        } else if (free == 0) {
+            score = 0;
+        } else {
+            score = Integer.MIN_VALUE;
+            while (free != 0) {
+                int bit = free & -free;
+                free &= free - 1;
+                score = Math.max(score, -negamax(theirs, mine | bit, scores, solved));
+            }
+        }
+        scores[code] = (byte) score;
+        solved[code] = true;
+        return score;
+    }
+
+    private static void setEntry(byte[] table, int code, int move) {
+        int index = code >> 1;
+        if ((code & 1) == 0) {
+            table[index] = (byte) ((table[index] & 0xF0) | move);
+        } else {
+            table[index] = (byte) ((table[index] & 0x0F) | (move << 4));
+        }
+    }
+
+    /**
+     * Código base 3 de la posición desde el punto de vista de {@code player}
+     */
+    public static int positionCode(BitBoard board, int player) {
+        return BitBoard.base3(board.mask(player)) + 2 * BitBoard.base3(board.mask(BitBoard.opponent(player)));
+    }
+
+    /**
+     * Mejor casilla para {@code player}, o -1 si la partida ya terminó
+     */
+    public int bestMove(BitBoard board, int player) {
+        int code = positionCode(board, player);
+        int entry = (mTable[code >> 1] >> ((code & 1) << 2)) & 0xF;
+        return entry == NO_MOVE ? -1 : entry;
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(mTable);
+    }
+
+    /**
+     * Genera el recurso raw: {@code java PerfectPlayTable app/src/main/res/raw/perfect_play.bin}
+     */
+    public static void main(String[] args) throws IOException {
+        try (OutputStream out = new FileOutputStream(args[0])) {
+            solve().writeTo(out);
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package com.example.androidtictactoe_tutorial2.game;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Torneo de la máquina contra sí misma, sin Android.
+ *
+ * Enfrenta cada par de niveles (incluido cada nivel contra sí mismo) durante muchas partidas,
+ * alternando quién empieza, con un hilo por núcleo. Al final imprime la matriz de victorias,
+ * tablas y derrotas, las partidas por segundo y la latencia media de decisión de cada nivel.
+ * Usa la misma lógica que la app ({@link ComputerPlayer}).
+ *
+ * <pre>
+ * ./gradlew :engine:selfPlay --args="--games 1000000 --levels Easy,Harder,Expert"
+ * ./gradlew :engine:selfPlay --args="--size 7 --win 4 --games 200 --levels Harder,Expert,Master"
+ * </pre>
+ */
+public final class SelfPlayTournament {
+    // Partidas que reserva un hilo de una vez; reduce la contención del contador compartido
+    private static final int BATCH = 256;
+
+    private final int mSize;
+    private final int mWinLength;
+    private final DifficultyLevel[] mLevels;
+    private final long mGamesPerPairing;
+    private final int mThreads;
+    private final PerfectPlayTable mTable;
+
+    // Resultados por par [fila][columna], desde el punto de vista del nivel de la fila
+    private final LongAdder[][] mWins;
+    private final LongAdder[][] mDraws;
+    private final LongAdder[][] mLosses;
+    // Latencia de decisión por nivel
+    private final LongAdder[] mDecisionNanos;
+    private final LongAdder[] mDecisions;
+    private final LongAccumulator[] mMaxDecisionNanos;
+
+    private final AtomicLong mNextGame = new AtomicLong();
+
+    public SelfPlayTournament(int size, int winLength, DifficultyLevel[] levels,
+                              long gamesPerPairing, int threads) {
+        mSize = size;
+        mWinLength = winLength;
+        mLevels = levels;
+        mGamesPerPairing = gamesPerPairing;
+        mThreads = Math.max(1, threads);
+        mTable = PerfectPlayTable.solve();
+
+        int n = levels.length;
+        mWins = newMatrix(n);
+        mDraws = newMatrix(n);
+        mLosses = newMatrix(n);
+        mDecisionNanos = newAdders(n);
+        mDecisions = newAdders(n);
+        mMaxDecisionNanos = new LongAccumulator[n];
+        for (int i = 0; i < n; i++) {
+            mMaxDecisionNanos[i] = new LongAccumulator(Math::max, 0);
+        }
+    }
+
+    /**
+     * Juega todas las partidas y devuelve el tiempo total en nanosegundos
+     */
+    public long run() throws InterruptedException {
+        long start = System.nanoTime();
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < mThreads; i++) {
+            Thread worker = new Thread(this::runWorker, "self-play-" + i);
+            workers.add(worker);
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return System.nanoTime() - start;
+    }
+
+    private void runWorker() {
+        // Un jugador por bando, para que las tablas de transposición no se mezclen. El torneo ya
+        // ocupa un hilo por núcleo, así que Master juega sus partidas de MCTS en este mismo hilo
+        ComputerPlayer first = new ComputerPlayer(mTable, 1);
+        ComputerPlayer second = new ComputerPlayer(mTable, 1);
+        GameBoard board = new GameBoard(mSize, mWinLength);
+        int n = mLevels.length;
+        long totalGames = mGamesPerPairing * n * n;
+        try {
+            while (true) {
+                long from = mNextGame.getAndAdd(BATCH);
+                if (from >= totalGames) {
+                    break;
+                }
+                long to = Math.min(from + BATCH, totalGames);
+                for (long game = from; game < to; game++) {
+                    int pairing = (int) (game / mGamesPerPairing);
+                    int a = pairing / n;
+                    int b = pairing % n;
+                    // En partidas alternas empieza el nivel de la columna
+                    boolean aStarts = (game & 1) == 0;
+                    playGame(board, a, b, aStarts, first, second);
+                }
+            }
+        } finally {
+            first.shutdown();
+            second.shutdown();
+        }
+    }
+
+    private void playGame(GameBoard board, int a, int b, boolean aStarts,
+                          ComputerPlayer playerA, ComputerPlayer playerB) {
+        board.clear();
+        int sideA = aStarts ? GameBoard.X : GameBoard.O;
+        while (!board.lastMoveWon() && !board.isFull()) {
+            int side = board.sideToMove();
+            boolean aMoves = side == sideA;
+            int level = aMoves ? a : b;
+            ComputerPlayer player = aMoves ? playerA : playerB;
+
+            long t0 = System.nanoTime();
+            int move = player.getBestMove(board, side, mLevels[level], NegamaxSearch.NO_DEADLINE);
+            long elapsed = System.nanoTime() - t0;
+            mDecisionNanos[level].add(elapsed);
+            mDecisions[level].increment();
+            mMaxDecisionNanos[level].accumulate(elapsed);
+
+            board.play(move);
+        }
+        int winner = board.winner();
+        if (winner == GameBoard.EMPTY) {
+            mDraws[a][b].increment();
+        } else if (winner == sideA) {
+            mWins[a][b].increment();
+        } else {
+            mLosses[a][b].increment();
+        }
+    }
+
+    public void printReport(long nanos) {
+        int n = mLevels.length;
+        long games = mGamesPerPairing * n * n;
+        double seconds = nanos / 1e9;
+        System.out.printf(Locale.US, "%dx%d, %d in a row: %d games on %d threads in %.2f s (%.0f games/s)%n",
+                mSize, mSize, mWinLength, games, mThreads, seconds, games / seconds);
+
+        System.out.println();
+        System.out.println("Win / draw / loss of the row level against the column level:");
+        StringBuilder header = new StringBuilder(String.format(Locale.US, "%-8s", ""));
+        for (DifficultyLevel level : mLevels) {
+            header.append(String.format(Locale.US, "  %-22s", level));
+        }
+        System.out.println(header);
+        for (int a = 0; a < n; a++) {
+            StringBuilder row = new StringBuilder(String.format(Locale.US, "%-8s", mLevels[a]));
+            for (int b = 0; b < n; b++) {
+                double total = mWins[a][b].sum() + mDraws[a][b].sum() + mLosses[a][b].sum();
+                row.append(String.format(Locale.US, "  %5.1f%% %5.1f%% %5.1f%%   ",
+                        100 * mWins[a][b].sum() / total,
+                        100 * mDraws[a][b].sum() / total,
+                        100 * mLosses[a][b].sum() / total));
+            }
+            System.out.println(row);
+        }
+
+        System.out.println();
+        System.out.println("Decision latency:");
+        for (int i = 0; i < n; i++) {
+            long count = mDecisions[i].sum();
+            System.out.printf(Locale.US, "%-8s  %,d moves, avg %.2f us, max %.2f us%n", mLevels[i], count,
+                    count == 0 ? 0 : mDecisionNanos[i].sum() / 1e3 / count,
+                    mMaxDecisionNanos[i].get() / 1e3);
+        }
+    }
+
+    private static LongAdder[] newAdders(int n) {
+        LongAdder[] adders = new LongAdder[n];
+        for (int i = 0; i < n; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    private static LongAdder[][] newMatrix(int n) {
+        LongAdder[][] matrix = new LongAdder[n][];
+        for (int i = 0; i < n; i++) {
+            matrix[i] = newAdders(n);
+        }
+        return matrix;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int size = 3;
+        int winLength = -1;
+        long games = 100_000;
+        int threads = Runtime.getRuntime().availableProcessors();
+        DifficultyLevel[] levels = {DifficultyLevel.Easy, DifficultyLevel.Harder, DifficultyLevel.Expert};
+
+        for (int i = 0; i < args.length; i++) {
+            String value = i + 1 < args.length ? args[i + 1] : null;
+            switch (args[i]) {
+                case "--size":
+                    size = Integer.parseInt(value);
+                    i++;
+                    break;
+                case "--win":
+                    winLength = Integer.parseInt(value);
+                    i++;
+                    break;
+                case "--games":
+                    games = Long.parseLong(value);
+                    i++;
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(value);
+                    i++;
+                    break;
+                case "--levels":
+                    String[] names = value.split(",");
+                    levels = new DifficultyLevel[names.length];
+                    for (int j = 0; j < names.length; j++) {
+                        levels[j] = DifficultyLevel.valueOf(names[j].trim());
+                    }
+                    i++;
+                    break;
+                default:
+                    System.err.println("Usage: SelfPlayTournament [--size N] [--win K] [--games G]"
+                            + " [--threads T] [--levels Easy,Harder,Expert,Master]");
+                    System.exit(2);
+            }
+        }
+        if (winLength < 0) {
+            winLength = size == 3 ? 3 : Math.min(size, 5);
+        }
+
+        SelfPlayTournament tournament = new SelfPlayTournament(size, winLength, levels, games, threads);
+        tournament.printReport(tournament.run());
+    }
+}
@@ -0,0 +1,180 @@
+package com.example.androidtictactoe_tutorial2.game;
+
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compara el estado incremental de {@link GameBoard} (ganador, línea ganadora, valoración y
+ * claves) con un recorrido completo del tablero tras secuencias aleatorias de jugadas,
+ * deshacer y sobrescrituras de casillas. Las partidas siguen después de una victoria, así que
+ * también se cubren tableros con varias líneas completas que se rompen en cualquier orden.
+ */
+public class GameBoardTest {
+    private static final int[] DIR_ROW = {0, 1, 1, 1};
+    private static final int[] DIR_COL = {1, 0, 1, -1};
+
+    @Test
+    public void classicBoardMatchesFullScan() {
+        checkRandomSequences(3, 3, 200, 60);
+    }
+
+    @Test
+    public void sevenByFourMatchesFullScan() {
+        checkRandomSequences(7, 4, 50, 200);
+    }
+
+    @Test
+    public void fifteenByFiveMatchesFullScan() {
+        checkRandomSequences(15, 5, 10, 600);
+    }
+
+    @Test
+    public void removingOneOfTwoLinesKeepsTheOther() {
+        // X completa la fila 0 y la columna 0 con la misma jugada; al retirar la esquina de la
+        // fila en otro orden, la línea que queda debe ser la columna
+        GameBoard board = new GameBoard(5, 3);
+        int[] row = {board.cell(0, 1), board.cell(0, 2)};
+        int[] col = {board.cell(1, 0), board.cell(2, 0)};
+        for (int cell : row) board.play(cell, GameBoard.X);
+        for (int cell : col) board.play(cell, GameBoard.X);
+        board.play(board.cell(0, 0), GameBoard.X);
+        assertEquals(GameBoard.X, board.winner());
+
+        board.remove(row[1]);
+        assertEquals(GameBoard.X, board.winner());
+        assertEquals(board.cell(0, 0), board.winStart());
+        assertEquals(board.cell(2, 0), board.winEnd());
+
+        board.remove(col[1]);
+        assertEquals(GameBoard.EMPTY, board.winner());
+        assertEquals(-1, board.winStart());
+        assertEquals(-1, board.winEnd());
+    }
+
+    @Test
+    public void sameSizeWithDifferentWinLengthHasDifferentKeys() {
+        GameBoard three = new GameBoard(5, 3);
+        GameBoard four = new GameBoard(5, 4);
+        three.play(12, GameBoard.X);
+        four.play(12, GameBoard.X);
+        assertNotEquals(three.canonicalKey(), four.canonicalKey());
+    }
+
+    private static void checkRandomSequences(int size, int winLength, int sequences, int steps) {
+        Random random = new Random(size * 31L + winLength);
+        for (int sequence = 0; sequence < sequences; sequence++) {
+            GameBoard board = new GameBoard(size, winLength);
+            Deque<Integer> played = new ArrayDeque<>();
+            for (int step = 0; step < steps; step++) {
+                String operation = applyRandomOperation(board, played, random);
+                check(board, "sequence " + sequence + ", step " + step + " (" + operation + ")");
+            }
+        }
+    }
+
+    private static String applyRandomOperation(GameBoard board, Deque<Integer> played, Random random) {
+        int choice = random.nextInt(10);
+        if (choice < 5 && !board.isFull()) {
+            int cell = board.randomEmptyCell(random);
+            board.play(cell);
+            played.push(cell);
+            return "play " + cell;
+        } else if (choice < 8 && !played.isEmpty()) {
+            int cell = played.pop();
+            if (board.get(cell) != GameBoard.EMPTY) {
+                board.undo(cell);
+            }
+            return "undo " + cell;
+        } else {
+            // Como al copiar el tablero del servidor: cualquier casilla, en cualquier orden
+            int cell = random.nextInt(board.cellCount());
+            int value = random.nextInt(3);
+            board.set(cell, value);
+            return "set " + cell + " to " + value;
+        }
+    }
+
+    private static void check(GameBoard board, String where) {
+        int size = board.size();
+        int k = board.winLength();
+        boolean xComplete = false;
+        boolean oComplete = false;
+        long eval = 0;
+        for (int d = 0; d < 4; d++) {
+            for (int row = 0; row < size; row++) {
+                for (int col = 0; col < size; col++) {
+                    int endRow = row + (k - 1) * DIR_ROW[d];
+                    int endCol = col + (k - 1) * DIR_COL[d];
+                    if (!board.isInside(endRow, endCol)) {
+                        continue;
+                    }
+                    int x = 0;
+                    int o = 0;
+                    for (int j = 0; j < k; j++) {
+                        int value = board.get(board.cell(row + j * DIR_ROW[d], col + j * DIR_COL[d]));
+                        if (value == GameBoard.X) x++;
+                        else if (value == GameBoard.O) o++;
+                    }
+                    xComplete |= x == k;
+                    oComplete |= o == k;
+                    if (x > 0 && o == 0) eval += 1L << (3 * (x - 1));
+                    if (o > 0 && x == 0) eval -= 1L << (3 * (o - 1));
+                }
+            }
+        }
+
+        int winner = board.winner();
+        if (!xComplete && !oComplete) {
+            assertEquals(where, GameBoard.EMPTY, winner);
+            assertEquals(where, -1, board.winStart());
+            assertEquals(where, -1, board.winEnd());
+        } else {
+            assertTrue(where + ": winner " + winner,
+                    (winner == GameBoard.X && xComplete) || (winner == GameBoard.O && oComplete));
+            assertTrue(where + ": stale win line " + board.winStart() + ".." + board.winEnd(),
+                    isCompleteLine(board, board.winStart(), board.winEnd(), winner));
+        }
+
+        int maxEval = NegamaxSearch.WIN_SCORE / 2 - 1;
+        long expected = board.sideToMove() == GameBoard.X ? eval : -eval;
+        assertEquals(where, (int) Math.max(-maxEval, Math.min(maxEval, expected)), board.evaluate());
+
+        // Las claves incrementales coinciden con las de un tablero armado desde cero
+        GameBoard rebuilt = new GameBoard(size, k);
+        int moves = 0;
+        for (int cell = 0; cell < board.cellCount(); cell++) {
+            if (board.get(cell) != GameBoard.EMPTY) {
+                rebuilt.set(cell, board.get(cell));
+                moves++;
+            }
+        }
+        rebuilt.setTurn(board.sideToMove());
+        assertEquals(where, moves, board.moveCount());
+        assertEquals(where, rebuilt.positionKey(), board.positionKey());
+        assertEquals(where, rebuilt.canonicalKey(), board.canonicalKey());
+    }
+
+    private static boolean isCompleteLine(GameBoard board, int start, int end, int player) {
+        if (start < 0 || end < 0) {
+            return false;
+        }
+        int size = board.size();
+        int k = board.winLength();
+        int rowStep = (end / size - start / size) / (k - 1);
+        int colStep = (end % size - start % size) / (k - 1);
+        if (start / size + (k - 1) * rowStep != end / size || start % size + (k - 1) * colStep != end % size) {
+            return false;
+        }
+        for (int j = 0; j < k; j++) {
+            if (board.get(board.cell(start / size + j * rowStep, start % size + j * colStep)) != player) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.androidtictactoe_tutorial2.game;
+
+import org.junit.Test;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Búsqueda de Monte Carlo con un hilo (en el hilo que llama, sin pool) y con varios
+ */
+public class MonteCarloSearchTest {
+
+    @Test
+    public void singleThreadTakesTheWin() {
+        checkTakesTheWin(new MonteCarloSearch(1));
+    }
+
+    @Test
+    public void poolTakesTheWin() {
+        checkTakesTheWin(new MonteCarloSearch(4));
+    }
+
+    @Test
+    public void singleThreadStopsWhenInterrupted() {
+        MonteCarloSearch search = new MonteCarloSearch(1);
+        GameBoard board = new GameBoard(7, 4);
+        board.play(24);
+        long start = System.nanoTime();
+        Thread.currentThread().interrupt();
+        try {
+            int move = search.search(board, start + TimeUnit.SECONDS.toNanos(30));
+            assertTrue(board.isEmpty(move));
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+            assertFalse(search.wasDecidedEarly());
+        } finally {
+            Thread.interrupted();
+        }
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void poolIsNotCreatedAfterShutdown() {
+        MonteCarloSearch search = new MonteCarloSearch(2);
+        search.shutdown();
+        GameBoard board = new GameBoard(7, 4);
+        board.play(24);
+        search.search(board, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(50));
+    }
+
+    private static void checkTakesTheWin(MonteCarloSearch search) {
+        try {
+            // X tiene 0 y 1; le toca a X, que gana en 2
+            GameBoard board = new GameBoard(3, 3);
+            board.play(0);
+            board.play(4);
+            board.play(1);
+            board.play(8);
+            int move = search.search(board, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(200));
+            assertEquals(2, move);
+            assertTrue(search.getLastPlayouts() > 0);
+        } finally {
+            search.shutdown();
+        }
+    }
+}
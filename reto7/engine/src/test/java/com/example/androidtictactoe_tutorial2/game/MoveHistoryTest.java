@@ -0,0 +1,155 @@
+package com.example.androidtictactoe_tutorial2.game;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Una partida codificada con {@link MoveHistory#encode()} y repetida con {@link MoveHistory#wrap}
+ * deja el mismo tablero, con uno y dos bytes por jugada, y deshacer y rehacer sobre un historial
+ * envuelto no toca el arreglo original.
+ */
+public class MoveHistoryTest {
+    @Test
+    public void classicGameRoundTrip() {
+        checkRoundTrip(3, 3, 1);
+    }
+
+    @Test
+    public void cellsAbove127RoundTrip() {
+        // 225 casillas: un byte por jugada, con índices que en Java serían bytes negativos
+        checkRoundTrip(15, 5, 1);
+    }
+
+    @Test
+    public void wideMovesRoundTrip() {
+        // 289 casillas: dos bytes por jugada
+        checkRoundTrip(17, 5, 2);
+    }
+
+    @Test
+    public void encodesHighCellsUnsigned() {
+        MoveHistory history = new MoveHistory(15 * 15, GameBoard.X);
+        history.push(224);
+        history.push(128);
+        assertArrayEquals(new byte[] {(byte) 224, (byte) 128}, history.encode());
+        assertEquals(224, history.get(0));
+
+        MoveHistory wide = new MoveHistory(17 * 17, GameBoard.O);
+        wide.push(288);
+        assertArrayEquals(new byte[] {1, 32}, wide.encode());
+        assertEquals(288, wide.get(0));
+    }
+
+    @Test
+    public void undoAndRedoAcrossWrapKeepTheEncodedBytes() {
+        GameBoard board = new GameBoard(15, 5);
+        MoveHistory original = playRandomGame(board, new Random(7), 40);
+        byte[] encoded = original.encode();
+        byte[] copy = encoded.clone();
+
+        GameBoard replayed = new GameBoard(15, 5);
+        MoveHistory wrapped = MoveHistory.wrap(encoded, encoded.length, replayed.cellCount(), original.firstPlayer());
+        while (wrapped.canRedo()) {
+            wrapped.redo(replayed);
+        }
+        assertSameCells(board, replayed);
+
+        // Deshacer tres, rehacer uno y jugar otra casilla: el historial se copia antes de escribir
+        for (int i = 0; i < 3; i++) {
+            wrapped.undo(replayed);
+        }
+        int redone = wrapped.redo(replayed);
+        assertEquals(original.get(original.size() - 3), redone);
+        int other = firstEmptyCellOtherThan(replayed, original.get(original.size() - 2));
+        replayed.play(other);
+        wrapped.push(other);
+
+        assertArrayEquals("wrap() must not write into the array it was given", copy, encoded);
+        assertFalse(wrapped.canRedo());
+        assertEquals(original.size() - 1, wrapped.size());
+        assertEquals(other, wrapped.get(wrapped.size() - 1));
+        assertEquals(wrapped.sideToMove(), replayed.sideToMove());
+    }
+
+    @Test
+    public void pushingTheUndoneMoveKeepsTheRedoTail() {
+        GameBoard board = new GameBoard(3, 3);
+        MoveHistory history = new MoveHistory(board.cellCount(), GameBoard.X);
+        for (int cell : new int[] {4, 0, 8}) {
+            board.play(cell);
+            history.push(cell);
+        }
+        history.undo(board);
+        history.undo(board);
+        board.play(0);
+        history.push(0);
+        assertTrue(history.canRedo());
+        assertEquals(8, history.redo(board));
+        assertEquals(GameBoard.X, board.get(8));
+    }
+
+    private static void checkRoundTrip(int size, int winLength, int bytesPerMove) {
+        Random random = new Random(size * 100 + winLength);
+        for (int game = 0; game < 50; game++) {
+            GameBoard board = new GameBoard(size, winLength);
+            int firstPlayer = game % 2 == 0 ? GameBoard.X : GameBoard.O;
+            board.setTurn(firstPlayer);
+            MoveHistory history = playRandomGame(board, random, size * size);
+
+            byte[] encoded = history.encode();
+            assertEquals(history.size() * bytesPerMove, encoded.length);
+
+            GameBoard replayed = new GameBoard(size, winLength);
+            MoveHistory wrapped = MoveHistory.wrap(encoded, encoded.length, replayed.cellCount(), firstPlayer);
+            replayed.setTurn(firstPlayer);
+            while (wrapped.canRedo()) {
+                wrapped.redo(replayed);
+            }
+            assertSameCells(board, replayed);
+            assertEquals(board.winner(), replayed.winner());
+            assertEquals(board.sideToMove(), replayed.sideToMove());
+            assertEquals(board.positionKey(), replayed.positionKey());
+
+            // Y de vuelta al tablero vacío
+            while (wrapped.canUndo()) {
+                wrapped.undo(replayed);
+            }
+            assertEquals(0, replayed.moveCount());
+            assertEquals(firstPlayer, replayed.sideToMove());
+        }
+    }
+
+    /**
+     * Juega al azar hasta que alguien gana, se llena el tablero o se hacen {@code maxMoves} jugadas
+     */
+    private static MoveHistory playRandomGame(GameBoard board, Random random, int maxMoves) {
+        MoveHistory history = new MoveHistory(board.cellCount(), board.sideToMove());
+        while (history.size() < maxMoves && !board.lastMoveWon() && !board.isFull()) {
+            int cell = board.randomEmptyCell(random);
+            board.play(cell);
+            history.push(cell);
+        }
+        return history;
+    }
+
+    private static int firstEmptyCellOtherThan(GameBoard board, int excluded) {
+        for (int cell = 0; cell < board.cellCount(); cell++) {
+            if (cell != excluded && board.isEmpty(cell)) {
+                return cell;
+            }
+        }
+        throw new AssertionError("Board is full");
+    }
+
+    private static void assertSameCells(GameBoard expected, GameBoard actual) {
+        byte[] expectedCells = new byte[expected.cellCount()];
+        byte[] actualCells = new byte[actual.cellCount()];
+        expected.copyCells(expectedCells);
+        actual.copyCells(actualCells);
+        assertTrue(Arrays.toString(actualCells), Arrays.equals(expectedCells, actualCells));
+    }
+}
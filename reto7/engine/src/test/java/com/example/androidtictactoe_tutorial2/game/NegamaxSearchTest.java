@@ -0,0 +1,142 @@
+package com.example.androidtictactoe_tutorial2.game;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * La tabla de transposición comparte entrada entre posiciones simétricas, así que la mejor
+ * jugada se guarda en la orientación canónica. Estas pruebas comprueban que ida y vuelta
+ * por la simetría devuelven la casilla de partida y que dos tableros simétricos ven la misma
+ * jugada canónica.
+ */
+public class NegamaxSearchTest {
+
+    @Test
+    public void inverseSymmetryUndoesEverySymmetry() {
+        checkInverse(new BitBoard());
+        checkInverse(new GameBoard(3, 3));
+        checkInverse(new GameBoard(7, 4));
+        checkInverse(new GameBoard(15, 5));
+    }
+
+    @Test
+    public void symmetricBitBoardsShareTheCanonicalFrame() {
+        Random random = new Random(3);
+        for (int game = 0; game < 200; game++) {
+            int[] moves = randomMoves(BitBoard.CELLS, 1 + random.nextInt(6), random);
+            BitBoard board = new BitBoard();
+            playAll(board, moves, 0);
+            for (int t = 1; t < 8; t++) {
+                BitBoard transformed = new BitBoard();
+                playAll(transformed, moves, t);
+                checkSameCanonicalFrame(board, transformed, t);
+            }
+        }
+    }
+
+    @Test
+    public void symmetricLargeBoardsShareTheCanonicalFrame() {
+        Random random = new Random(7);
+        for (int game = 0; game < 100; game++) {
+            int[] moves = randomMoves(49, 1 + random.nextInt(12), random);
+            GameBoard board = new GameBoard(7, 4);
+            playAll(board, moves, 0);
+            for (int t = 1; t < 8; t++) {
+                GameBoard transformed = new GameBoard(7, 4);
+                playAll(transformed, moves, t);
+                checkSameCanonicalFrame(board, transformed, t);
+            }
+        }
+    }
+
+    @Test
+    public void hashMoveFromSymmetricPositionIsLegal() {
+        // Se busca una posición y luego su reflejo con la misma tabla: la jugada de la tabla
+        // debe seguir siendo una casilla libre del tablero reflejado
+        NegamaxSearch search = new NegamaxSearch(16);
+        GameBoard board = new GameBoard(7, 4);
+        int[] moves = {24, 25, 17, 31, 18};
+        playAll(board, moves, 0);
+        search.search(board, 4);
+        int score = search.getLastScore();
+        GameBoard reflected = new GameBoard(7, 4);
+        playAll(reflected, moves, 4);
+        int reflectedMove = search.search(reflected, 4);
+        assertTrue(reflected.isEmpty(reflectedMove));
+        assertEquals(score, search.getLastScore());
+    }
+
+    private static void checkInverse(GamePosition position) {
+        for (int s = 0; s < 8; s++) {
+            int inverse = NegamaxSearch.inverseSymmetry(s);
+            for (int cell = 0; cell < position.cellCount(); cell++) {
+                int mapped = position.symmetricCell(cell, s);
+                assertEquals("symmetry " + s + ", cell " + cell,
+                        cell, position.symmetricCell(mapped, inverse));
+            }
+        }
+    }
+
+    /**
+     * {@code transformed} es {@code board} pasado por la simetría {@code t}. Si la posición no
+     * es simétrica consigo misma, cada casilla y su imagen llevan a la misma casilla canónica.
+     */
+    private static void checkSameCanonicalFrame(GamePosition board, GamePosition transformed, int t) {
+        assertEquals(board.canonicalKey(), transformed.canonicalKey());
+        if (hasSelfSymmetry(board)) {
+            return;
+        }
+        int symmetry = board.canonicalSymmetry();
+        int transformedSymmetry = transformed.canonicalSymmetry();
+        for (int cell = 0; cell < board.cellCount(); cell++) {
+            int canonical = board.symmetricCell(cell, symmetry);
+            int image = board.symmetricCell(cell, t);
+            assertEquals("symmetry " + t + ", cell " + cell,
+                    canonical, transformed.symmetricCell(image, transformedSymmetry));
+            assertEquals(image, transformed.symmetricCell(
+                    canonical, NegamaxSearch.inverseSymmetry(transformedSymmetry)));
+        }
+    }
+
+    private static boolean hasSelfSymmetry(GamePosition board) {
+        for (int s = 1; s < 8; s++) {
+            boolean same = true;
+            for (int cell = 0; cell < board.cellCount() && same; cell++) {
+                int image = board.symmetricCell(cell, s);
+                same = cellValue(board, cell) == cellValue(board, image);
+            }
+            if (same) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int cellValue(GamePosition board, int cell) {
+        if (board instanceof GameBoard) return ((GameBoard) board).get(cell);
+        return ((BitBoard) board).get(cell);
+    }
+
+    private static int[] randomMoves(int cells, int count, Random random) {
+        int[] order = new int[cells];
+        for (int i = 0; i < cells; i++) order[i] = i;
+        for (int i = cells - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int t = order[i];
+            order[i] = order[j];
+            order[j] = t;
+        }
+        int[] moves = new int[count];
+        System.arraycopy(order, 0, moves, 0, count);
+        return moves;
+    }
+
+    private static void playAll(GamePosition position, int[] moves, int symmetry) {
+        for (int move : moves) {
+            position.play(position.symmetricCell(move, symmetry));
+        }
+    }
+}
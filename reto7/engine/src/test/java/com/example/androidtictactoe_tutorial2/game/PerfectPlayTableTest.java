@@ -0,0 +1,104 @@
+package com.example.androidtictactoe_tutorial2.game;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+/**
+ * La tabla de jugadas perfectas no pierde nunca, empiece quien empiece, y el recurso que se
+ * empaqueta en la app es byte a byte el que genera {@link PerfectPlayTable#solve()}.
+ */
+public class PerfectPlayTableTest {
+    // Relativo al directorio del módulo, desde donde Gradle ejecuta las pruebas
+    private static final File BUNDLED_TABLE = new File("../app/src/main/res/raw/perfect_play.bin");
+
+    private final PerfectPlayTable mTable = PerfectPlayTable.solve();
+
+    @Test
+    public void neverLosesWhenMovingFirst() {
+        assertNeverLoses(new BitBoard(), BitBoard.X, BitBoard.X);
+    }
+
+    @Test
+    public void neverLosesWhenMovingSecond() {
+        assertNeverLoses(new BitBoard(), BitBoard.X, BitBoard.O);
+    }
+
+    @Test
+    public void takesAnImmediateWin() {
+        // X en 0 y 1, O en 3 y 4: X gana en 2 (y O ganaría en 5)
+        BitBoard board = new BitBoard();
+        board.play(0, BitBoard.X);
+        board.play(3, BitBoard.O);
+        board.play(1, BitBoard.X);
+        board.play(4, BitBoard.O);
+        assertEquals(2, mTable.bestMove(board, BitBoard.X));
+        assertEquals(5, mTable.bestMove(board, BitBoard.O));
+    }
+
+    @Test
+    public void writeAndLoadRoundTrip() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        mTable.writeTo(out);
+        assertEquals(PerfectPlayTable.TABLE_BYTES, out.size());
+        PerfectPlayTable loaded = PerfectPlayTable.load(new ByteArrayInputStream(out.toByteArray()));
+        assertSameMoves(mTable, loaded);
+    }
+
+    @Test
+    public void bundledResourceMatchesSolvedTable() throws IOException {
+        Assume.assumeTrue("App resource not found from " + new File(".").getAbsolutePath(), BUNDLED_TABLE.isFile());
+        byte[] bundled = Files.readAllBytes(BUNDLED_TABLE.toPath());
+        ByteArrayOutputStream solved = new ByteArrayOutputStream();
+        mTable.writeTo(solved);
+        assertArrayEquals("perfect_play.bin is stale or was altered on checkout", solved.toByteArray(), bundled);
+    }
+
+    /**
+     * Recorre todas las respuestas posibles del rival desde {@code board}
+     */
+    private void assertNeverLoses(BitBoard board, int toMove, int tablePlayer) {
+        if (board.winner() != BitBoard.EMPTY || board.isFull()) {
+            assertNotEquals("Table lost", BitBoard.opponent(tablePlayer), board.winner());
+            return;
+        }
+        if (toMove == tablePlayer) {
+            int move = mTable.bestMove(board, toMove);
+            assertTrue("Illegal move " + move, move >= 0 && board.isEmpty(move));
+            board.play(move, toMove);
+            assertNeverLoses(board, BitBoard.opponent(toMove), tablePlayer);
+            board.remove(move);
+            return;
+        }
+        for (int cell = 0; cell < BitBoard.CELLS; cell++) {
+            if (board.isEmpty(cell)) {
+                board.play(cell, toMove);
+                assertNeverLoses(board, BitBoard.opponent(toMove), tablePlayer);
+                board.remove(cell);
+            }
+        }
+    }
+
+    private static void assertSameMoves(PerfectPlayTable expected, PerfectPlayTable actual) {
+        BitBoard board = new BitBoard();
+        for (int code = 0; code < PerfectPlayTable.POSITIONS; code++) {
+            board.clear();
+            int rest = code;
+            for (int cell = 0; cell < BitBoard.CELLS; cell++) {
+                int digit = rest % 3;
+                rest /= 3;
+                if (digit != 0) {
+                    board.play(cell, digit == 1 ? BitBoard.X : BitBoard.O);
+                }
+            }
+            assertEquals("Position " + code, expected.bestMove(board, BitBoard.X), actual.bestMove(board, BitBoard.X));
+        }
+    }
+}
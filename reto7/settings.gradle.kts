@@ -21,4 +21,5 @@ dependencyResolutionManagement {
 
 rootProject.name = "AndroidTicTacToe-Tutorial2"
 include(":app")
+include(":engine")
  
\ No newline at end of file